@@ -0,0 +1,82 @@
+package textsearch.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import textsearch.ApproximateMatcher;
+import textsearch.MultiPatternMatcher;
+import textsearch.RollingHash;
+
+
+/*
+ * Searches for patterns with one character wrong in English text.
+ * "variants" is the old way: every pattern with every one of its characters replaced by every letter and space,
+ * all searched exactly by a RollingHash. "segments" is ApproximateMatcher with 1 mismatch on the patterns themselves.
+ * Both find the same places; the variants also match a pattern once for each variant that fits, so the counts differ.
+ * The score is searches per second, times textSize for characters per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApproximateBenchmark {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+
+    @Param({ "variants", "segments" })
+    public String engine;
+
+    @Param({ "100", "1000" })
+    public int patternCount;
+
+    @Param({ "16777216" })
+    public int textSize;
+
+    private String text;
+    private MultiPatternMatcher searcher;
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkData.text("english", textSize, 1);
+        Set<String> patternSet = BenchmarkData.patterns(text, "english", patternCount, "narrow", 2);
+
+        if ("segments".equals(engine)) {
+        	searcher = new ApproximateMatcher(patternSet, 1);
+        	return;
+        }
+
+        Set<String> variants = new HashSet<String>();
+        for (String pattern : patternSet) {
+        	char[] chars = pattern.toCharArray();
+        	for (int j = 0; j < chars.length; j++) {
+        		char original = chars[j];
+        		for (int a = 0; a < ALPHABET.length(); a++) {
+        			chars[j] = ALPHABET.charAt(a);
+        			variants.add(new String(chars));
+        		}
+        		chars[j] = original;
+        	}
+        }
+        searcher = new RollingHash(variants);
+    }
+
+    @Benchmark
+    public long countMatches() {
+        return searcher.countMatches(text);
+    }
+}
@@ -0,0 +1,104 @@
+package textsearch.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import textsearch.AhoCorasick;
+import textsearch.RollingHash;
+
+
+/*
+ * Baselines for MultiPatternSearchBenchmark: one String.indexOf loop per pattern, and a single
+ * regex that is the alternation of all patterns. Both count every match so the numbers compare
+ * with RollingHash.countMatches and AhoCorasick.countMatches on the same data.
+ * The baselines get slow quickly as patterns are added, so the default pattern counts stop at 1000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BaselineSearchBenchmark {
+
+    @Param({ "1024", "1048576" })
+    public int textSize;
+
+    @Param({ "10", "1000" })
+    public int patternCount;
+
+    @Param({ "narrow", "wide" })
+    public String lengthSpread;
+
+    @Param({ "english", "dna", "random" })
+    public String alphabet;
+
+    private String text;
+    private String[] patterns;
+    private Pattern alternation;
+    private RollingHash searcher;
+    private AhoCorasick ahoCorasick;
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkData.text(alphabet, textSize, 1);
+        Set<String> patternSet = BenchmarkData.patterns(text, alphabet, patternCount, lengthSpread, 2);
+        patterns = patternSet.toArray(new String[0]);
+
+        //longest first, so the alternation prefers the longest match like the result map does
+        StringBuilder regex = new StringBuilder();
+        patternSet.stream()
+        	.sorted((a, b) -> b.length() - a.length())
+        	.forEach(pattern -> regex.append(regex.length() == 0 ? "" : "|").append(Pattern.quote(pattern)));
+        alternation = Pattern.compile(regex.toString());
+
+        searcher = new RollingHash(patternSet);
+        ahoCorasick = new AhoCorasick(patternSet);
+    }
+
+    @Benchmark
+    public long indexOfLoop() {
+        long count = 0;
+        for (String pattern : patterns) {
+        	for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1))
+        		count++;
+        }
+        return count;
+    }
+
+    /*
+     * The regex finds non-overlapping matches only, so it can count fewer than the other two.
+     */
+    @Benchmark
+    public long regexAlternation() {
+        long count = 0;
+        Matcher matcher = alternation.matcher(text);
+        while (matcher.find())
+        	count++;
+        return count;
+    }
+
+    @Benchmark
+    public long rollingHash() {
+        return searcher.countMatches(text);
+    }
+
+    @Benchmark
+    public long ahoCorasick() {
+        return ahoCorasick.countMatches(text);
+    }
+}
@@ -0,0 +1,80 @@
+package textsearch.benchmarks;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+
+/*
+ * This is the class that generates the texts and pattern sets the benchmarks search.
+ * Everything comes from a seeded Random, so every run searches the same data.
+ */
+public final class BenchmarkData {
+
+    /*
+     * English text is made of these words, with the earlier ones picked more often.
+     */
+    private static final String[] WORDS = {
+        "the", "of", "and", "a", "to", "in", "is", "was", "it", "for", "that", "with", "as", "had", "we",
+        "times", "wisdom", "belief", "before", "age", "epoch", "season", "light", "darkness", "spring",
+        "hope", "winter", "despair", "everything", "nothing", "best", "worst", "foolishness", "incredulity",
+        "search", "pattern", "window", "hash", "rolling", "match", "text", "document", "archive", "record",
+        "request", "response", "error", "warning", "connection", "timeout", "server", "client", "session"
+    };
+
+    private BenchmarkData() {
+    }
+
+    /*
+     * Text of the given length in the given alphabet:
+     * "english" - words separated by spaces, "dna" - the letters ACGT, "random" - chars 0 to 255 like random bytes.
+     */
+    public static String text(String alphabet, int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length);
+
+        while (text.length() < length) {
+        	switch (alphabet) {
+        	case "english":
+        		//squaring the random number favours the common words at the front of the list
+        		double r = random.nextDouble();
+        		text.append(WORDS[(int) (r * r * WORDS.length)]).append(' ');
+        		break;
+        	case "dna":
+        		text.append("ACGT".charAt(random.nextInt(4)));
+        		break;
+        	case "random":
+        		text.append((char) random.nextInt(256));
+        		break;
+        	default:
+        		throw new IllegalArgumentException("unknown alphabet: " + alphabet);
+        	}
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    /*
+     * A pattern set of up to count patterns.
+     * Half of them are cut out of the text, so they are found, and half are random strings of the alphabet,
+     * which mostly are not. Lengths are 8 to 12 for a "narrow" spread and 3 to 40 for a "wide" one.
+     * Small alphabets do not have count distinct short strings, so the set can be smaller than count.
+     */
+    public static Set<String> patterns(String text, String alphabet, int count, String lengthSpread, long seed) {
+        Random random = new Random(seed);
+        int minLength = "narrow".equals(lengthSpread) ? 8 : 3;
+        int maxLength = "narrow".equals(lengthSpread) ? 12 : 40;
+
+        Set<String> patternSet = new HashSet<String>();
+        for (int attempt = 0; attempt < count * 4 && patternSet.size() < count; attempt++) {
+        	int length = minLength + random.nextInt(maxLength - minLength + 1);
+        	if (attempt % 2 == 0 && text.length() > length) {
+        		int start = random.nextInt(text.length() - length);
+        		patternSet.add(text.substring(start, start + length));
+        	} else {
+        		patternSet.add(text(alphabet, length, random.nextLong()));
+        	}
+        }
+        return patternSet;
+    }
+}
@@ -0,0 +1,33 @@
+package textsearch.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/*
+ * Main class of benchmarks.jar.
+ * It takes the usual JMH command line, always adds the GC profiler so the allocation rate
+ * is recorded next to the time, and writes the results to jmh-result.json so runs can be
+ * compared before a deploy.
+ * Example: java -jar benchmarks/target/benchmarks.jar MultiPatternSearchBenchmark -p alphabet=dna
+ * The 1 GB text point alone: java -jar benchmarks/target/benchmarks.jar MultiPatternSearchBenchmark -p textSize=1073741824
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+        		.parent(new CommandLineOptions(args))
+        		.addProfiler(GCProfiler.class)
+        		.resultFormat(ResultFormatType.JSON)
+        		.result("jmh-result.json")
+        		.build();
+
+        new Runner(options).run();
+    }
+}
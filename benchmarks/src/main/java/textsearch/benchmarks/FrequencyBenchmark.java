@@ -0,0 +1,90 @@
+package textsearch.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import textsearch.FrequencyAggregator;
+import textsearch.RollingHash;
+
+
+/*
+ * Per-pattern counts over a corpus of small documents.
+ * "map" is the old way: multiplePatternMatchSearch on each document and a count per matched text from the map it returns.
+ * "aggregate" is FrequencyAggregator on a pool of the given number of threads.
+ * The score is corpora per second. Scaling with threads needs as many free cores as threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrequencyBenchmark {
+
+    @Param({ "map", "aggregate" })
+    public String mode;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    @Param({ "20000" })
+    public int documentCount;
+
+    @Param({ "1024" })
+    public int documentSize;
+
+    private List<String> documents;
+    private RollingHash searcher;
+    private FrequencyAggregator aggregator;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        String text = BenchmarkData.text("english", documentCount * documentSize, 1);
+        documents = new ArrayList<String>();
+        for (int d = 0; d < documentCount; d++)
+        	documents.add(text.substring(d * documentSize, (d + 1) * documentSize));
+
+        Set<String> patternSet = BenchmarkData.patterns(text, "english", 1000, "narrow", 2);
+        searcher = new RollingHash(patternSet);
+        aggregator = new FrequencyAggregator(searcher);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Object count() {
+        if ("aggregate".equals(mode))
+        	return aggregator.aggregate(documents.iterator(), pool);
+
+        //the old way runs on one thread whatever threads says
+        Map<String, Long> counts = new HashMap<String, Long>();
+        for (String document : documents) {
+        	for (String matched : searcher.multiplePatternMatchSearch(document).values())
+        		counts.merge(matched, 1L, Long::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,90 @@
+package textsearch.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import textsearch.HashScheme;
+import textsearch.PatternIndex;
+import textsearch.RollingHash;
+import textsearch.SearchMetrics;
+
+
+/*
+ * Compares the hash schemes on 100k-pattern dictionaries: end-to-end search time, and the number of
+ * false positives (hash hits whose verification failed) and matches per search, which JMH reports
+ * as the secondary results "falsePositives" and "matches".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashSchemeBenchmark {
+
+    @Param({ "PRIME_31", "MERSENNE_61", "DOUBLE_31" })
+    public HashScheme hashScheme;
+
+    @Param({ "100000" })
+    public int patternCount;
+
+    @Param({ "16777216" })
+    public int textSize;
+
+    @Param({ "english", "dna", "random" })
+    public String alphabet;
+
+    private String text;
+    private SearchMetrics metrics;
+    private RollingHash searcher;
+
+    /*
+     * Per-search verification counts, read from the searcher's metrics.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Verifications {
+        public long falsePositives;
+        public long matches;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+        	falsePositives = 0;
+        	matches = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkData.text(alphabet, textSize, 1);
+        Set<String> patternSet = BenchmarkData.patterns(text, alphabet, patternCount, "wide", 2);
+        metrics = new SearchMetrics();
+        searcher = new RollingHash(new PatternIndex(patternSet, hashScheme), metrics);
+    }
+
+    @Benchmark
+    public long countMatches(Verifications verifications) {
+        long falsePositivesBefore = metrics.getFalsePositives();
+        long matchesBefore = metrics.getMatches();
+
+        long count = searcher.countMatches(text);
+
+        verifications.falsePositives += metrics.getFalsePositives() - falsePositivesBefore;
+        verifications.matches += metrics.getMatches() - matchesBefore;
+        return count;
+    }
+}
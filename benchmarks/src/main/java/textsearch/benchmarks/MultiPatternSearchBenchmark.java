@@ -0,0 +1,67 @@
+package textsearch.benchmarks;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import textsearch.RollingHash;
+
+
+/*
+ * Benchmark of RollingHash.multiplePatternMatchSearch across text sizes, pattern counts,
+ * pattern length spreads and alphabets.
+ * Text sizes are in characters, from 1 KB up to 1 GB. The 1 GB text and its match map need a heap of several GB,
+ * so the fork gets -Xmx8g. To run only that point: -p textSize=1073741824
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MultiPatternSearchBenchmark {
+
+    @Param({ "1024", "1048576", "67108864", "1073741824" })
+    public int textSize;
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    public int patternCount;
+
+    @Param({ "narrow", "wide" })
+    public String lengthSpread;
+
+    @Param({ "english", "dna", "random" })
+    public String alphabet;
+
+    private String text;
+    private RollingHash searcher;
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkData.text(alphabet, textSize, 1);
+        Set<String> patternSet = BenchmarkData.patterns(text, alphabet, patternCount, lengthSpread, 2);
+        searcher = new RollingHash(patternSet);
+    }
+
+    @Benchmark
+    public Map<Integer, String> multiplePatternMatchSearch() {
+        return searcher.multiplePatternMatchSearch(text);
+    }
+
+    @Benchmark
+    public long countMatches() {
+        return searcher.countMatches(text);
+    }
+}
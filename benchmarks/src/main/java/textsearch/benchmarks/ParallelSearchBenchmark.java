@@ -0,0 +1,74 @@
+package textsearch.benchmarks;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import textsearch.RollingHash;
+
+
+/*
+ * Throughput of RollingHash.parallelPatternMatchSearch for different chunk sizes and thread counts.
+ * It searches random lowercase text for random 8 letter words, so there are few matches and
+ * the time is spent rolling the hash, not verifying.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelSearchBenchmark {
+
+    @Param({ "67108864" })
+    public int textSize;
+
+    @Param({ "16384", "65536", "1048576", "16777216" })
+    public int chunkSize;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private String text;
+    private RollingHash searcher;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkData.text("random", textSize, 1).chars()
+        		.collect(StringBuilder::new, (text, c) -> text.append((char) ('a' + c % 26)), StringBuilder::append)
+        		.toString();
+        Set<String> patternSet = BenchmarkData.patterns(text, "random", 1000, "narrow", 2);
+        searcher = new RollingHash(patternSet);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Map<Integer, String> parallelPatternMatchSearch() {
+        return searcher.parallelPatternMatchSearch(text, chunkSize, pool);
+    }
+
+    @Benchmark
+    public Map<Integer, String> sequential() {
+        return searcher.multiplePatternMatchSearch(text);
+    }
+}
@@ -0,0 +1,81 @@
+package textsearch.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import textsearch.HashScheme;
+import textsearch.PatternIndex;
+import textsearch.RollingHash;
+
+
+/*
+ * Search throughput against dictionary size, with and without the BlockedBloomFilter prefilter.
+ * Up to about 100k patterns the band tables fit in cache and the prefilter is an extra check for nothing.
+ * From there on nearly every window misses the cache in the table, which the prefilter avoids for the
+ * windows no pattern has. The narrow length spread keeps every pattern in one band, so the one table
+ * holds the whole dictionary. The 4M-pattern case needs a heap of a few GB (-jvmArgs -Xmx4g).
+ * -p source=mapped,heap searches the same index saved to a file and loaded back, in place or copied onto the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrefilterBenchmark {
+
+    @Param({ "10000", "100000", "1000000", "4000000" })
+    public int patternCount;
+
+    @Param({ "false", "true" })
+    public boolean prefilter;
+
+    @Param({ "random", "english" })
+    public String alphabet;
+
+    @Param({ "16777216" })
+    public int textSize;
+
+    @Param({ "compiled" })
+    public String source;
+
+    private String text;
+    private RollingHash searcher;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = BenchmarkData.text(alphabet, textSize, 1);
+        Set<String> patternSet = BenchmarkData.patterns(text, alphabet, patternCount, "narrow", 2);
+        PatternIndex index = new PatternIndex(patternSet, HashScheme.MERSENNE_61, false, prefilter);
+        if (!source.equals("compiled")) {
+        	Path file = Files.createTempFile("prefilter", ".idx");
+        	file.toFile().deleteOnExit();
+        	index.save(file);
+        	index = PatternIndex.load(file, source.equals("heap"));
+        }
+        searcher = new RollingHash(index);
+    }
+
+    /*
+     * One search over the whole text. The score is searches per second, times textSize for characters per second.
+     */
+    @Benchmark
+    public long countMatches() {
+        return searcher.countMatches(text);
+    }
+}
@@ -0,0 +1,83 @@
+package textsearch.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import textsearch.LatencyHistogram;
+import textsearch.SearchServer;
+
+
+/*
+ * Load test for SearchServer. It is not a JMH benchmark: it starts a server in this JVM, registers a pattern set
+ * and has a number of clients each send one search after another for a while, then prints the throughput and
+ * latency the clients saw and the server's /stats. Run it once with batching and once without to compare.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar textsearch.benchmarks.SearchServerLoadTest [clients [seconds [maxBatchSize [documentSize]]]]
+ */
+public class SearchServerLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int maxBatchSize = args.length > 2 ? Integer.parseInt(args[2]) : SearchServer.DEFAULT_MAX_BATCH_SIZE;
+        int documentSize = args.length > 3 ? Integer.parseInt(args[3]) : 2048;
+
+        String text = BenchmarkData.text("english", 1 << 22, 1);
+        Set<String> patternSet = BenchmarkData.patterns(text, "english", 10000, "narrow", 2);
+
+        SearchServer server = new SearchServer(0, Runtime.getRuntime().availableProcessors(), maxBatchSize);
+        server.start();
+        server.register("load", patternSet, false, false);
+        String base = "http://localhost:" + server.getPort();
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(4)).build();
+
+        LatencyHistogram latencyMicros = new LatencyHistogram();
+        LongAdder failures = new LongAdder();
+        long endNanos = System.nanoTime() + seconds * 1_000_000_000L;
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<?>> running = new ArrayList<Future<?>>();
+        for (int c = 0; c < clients; c++) {
+        	long seed = c;
+        	running.add(pool.submit(() -> {
+        		Random random = new Random(seed);
+        		while (System.nanoTime() < endNanos) {
+        			int start = random.nextInt(text.length() - documentSize);
+        			HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/search/load?count=true"))
+        					.POST(HttpRequest.BodyPublishers.ofString(text.substring(start, start + documentSize))).build();
+        			long sent = System.nanoTime();
+        			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        			latencyMicros.record((System.nanoTime() - sent) / 1000);
+        			if (response.statusCode() != 200)
+        				failures.increment();
+        		}
+        		return null;
+        	}));
+        }
+        for (Future<?> clientLoop : running)
+        	clientLoop.get();
+        pool.shutdown();
+
+        long requests = latencyMicros.getCount();
+        System.out.printf("%d clients, max batch %d, %d-char documents: %d requests in %d s, %.0f requests/sec, %d failed%n",
+        		clients, maxBatchSize, documentSize, requests, seconds, (double) requests / seconds, failures.sum());
+        System.out.printf("client latency us: p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n",
+        		latencyMicros.getPercentile(50), latencyMicros.getPercentile(90), latencyMicros.getPercentile(99),
+        		latencyMicros.getPercentile(99.9), latencyMicros.getMax());
+        System.out.println("server stats: " + client.send(HttpRequest.newBuilder(URI.create(base + "/stats")).build(),
+        		HttpResponse.BodyHandlers.ofString()).body());
+
+        server.stop(0);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,79 @@
+package textsearch.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import textsearch.PatternIndex;
+import textsearch.RollingHash;
+
+
+/*
+ * Search throughput with and without the skip-scan, for a few upper case keywords in lower case English text,
+ * like grepping a log for ERROR. Nearly every window starts with a character no keyword starts with,
+ * which is where the skip-scan helps. The "english" patterns are cut out of the text instead,
+ * so a match can start almost anywhere and the skip-scan can only cost.
+ * The fork adds the jdk.incubator.vector module so the vectorized filter is measured. Without it
+ * (-jvmArgs with no --add-modules) the scalar filter is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SkipScanBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean skipScan;
+
+    @Param({ "keywords", "english" })
+    public String patterns;
+
+    @Param({ "16777216" })
+    public int textSize;
+
+    private String text;
+    private RollingHash searcher;
+
+    @Setup
+    public void setUp() {
+        StringBuilder logText = new StringBuilder(BenchmarkData.text("english", textSize, 1));
+        String[] keywords = { "ERROR", "FATAL", "Exception", "WARNING" };
+        for (int i = 0; i < keywords.length; i++) {
+        	//a few hits spread over the text, so the keywords are found
+        	for (int at = 1000 * (i + 1); at + keywords[i].length() < logText.length(); at += 100000)
+        		logText.replace(at, at + keywords[i].length(), keywords[i]);
+        }
+        text = logText.toString();
+
+        Set<String> patternSet = new HashSet<String>();
+        if ("keywords".equals(patterns)) {
+        	for (String keyword : keywords)
+        		patternSet.add(keyword);
+        } else {
+        	patternSet = BenchmarkData.patterns(text, "english", 16, "narrow", 2);
+        }
+        searcher = new RollingHash(new PatternIndex(patternSet), null, skipScan);
+    }
+
+    /*
+     * One search over the whole text. The score is searches per second, times textSize for characters per second.
+     */
+    @Benchmark
+    public long countMatches() {
+        return searcher.countMatches(text);
+    }
+}
@@ -0,0 +1,88 @@
+package textsearch.benchmarks;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import textsearch.AhoCorasick;
+import textsearch.MultiPatternMatcher;
+import textsearch.RollingHash;
+import textsearch.TokenMatcher;
+
+
+/*
+ * Word lookups in English text: the substring engines against the whole-word TokenMatcher.
+ * The patterns are words, some of them in the text and the rest random lower case words that are not.
+ * The substring engines also report words found inside longer words, so the match counts differ;
+ * the score to compare is the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenModeBenchmark {
+
+    @Param({ "rolling", "ahocorasick", "token" })
+    public String engine;
+
+    @Param({ "100", "100000" })
+    public int patternCount;
+
+    @Param({ "16777216" })
+    public int textSize;
+
+    private String text;
+    private MultiPatternMatcher searcher;
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkData.text("english", textSize, 1);
+
+        Set<String> patternSet = new HashSet<String>();
+        for (String word : text.substring(0, 10000).split(" ")) {
+        	if (word.length() > 0)
+        		patternSet.add(word);
+        }
+        Random random = new Random(2);
+        while (patternSet.size() < patternCount) {
+        	char[] word = new char[3 + random.nextInt(10)];
+        	for (int j = 0; j < word.length; j++)
+        		word[j] = (char) ('a' + random.nextInt(26));
+        	patternSet.add(new String(word));
+        }
+
+        switch (engine) {
+        case "rolling":
+        	searcher = new RollingHash(patternSet);
+        	break;
+        case "ahocorasick":
+        	searcher = new AhoCorasick(patternSet);
+        	break;
+        default:
+        	searcher = new TokenMatcher(patternSet);
+        }
+    }
+
+    /*
+     * One search over the whole text. The score is searches per second, times textSize for characters per second.
+     */
+    @Benchmark
+    public long countMatches() {
+        return searcher.countMatches(text);
+    }
+}
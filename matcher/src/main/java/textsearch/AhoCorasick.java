@@ -0,0 +1,180 @@
+package textsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+
+/*
+ * This is the class that does multiple pattern search with an Aho-Corasick automaton.
+ * The text is read once, one table lookup per character, whatever the number or lengths of the patterns.
+ * So it does not slow down when pattern lengths vary widely or the shortest pattern is tiny,
+ * which is where the rolling hash has to verify at almost every position.
+ *
+ * The automaton is a complete DFA stored in one flat int array, one row per state.
+ * Characters are mapped to classes first, one class for each character used in the patterns
+ * and class 0 for all the others, so a row is only as wide as the patterns' alphabet.
+ * The bigO is O(n+p) n - length of text to be searched. p - number of matches
+ */
+public class AhoCorasick implements MultiPatternMatcher {
+
+    private final String[] patterns;          //patterns indexed by pattern id
+    private final char[] charClass;           //character -> class, 0 for characters that are in no pattern
+    private final int classCount;
+    private final int[] transitions;          //transitions[state * classCount + class] -> next state
+    private final int[] outputPattern;        //id of a pattern that ends at the state, -1 if none
+    private final int[] nextOutput;           //pattern id -> next pattern that ends at the same state, -1 if none
+    private final int[] outputLink;           //nearest state on the failure chain that has an output, 0 if none
+
+    /*
+     * Constructor
+     * It builds the trie of the patterns, then walks it breadth first to compute the failure links
+     * and fill in every missing transition, so the search never follows a failure link.
+     */
+    public AhoCorasick(Set<String> patternSet) {
+        this(patternSet, false);
+    }
+
+    /*
+     * Constructor with a choice of case-insensitive search.
+     * The classes are given to the folded characters of the patterns, then every character is mapped to the class of
+     * its folded form, so upper and lower case share a column and the search does no extra work per character.
+     * Patterns that differ only in case then end at the same state, so each state keeps a chain of its patterns.
+     */
+    public AhoCorasick(Set<String> patternSet, boolean caseInsensitive) {
+        List<String> patternList = new ArrayList<String>();
+        for (String pattern : patternSet) {
+        	if (pattern.length() > 0)
+        		patternList.add(pattern);
+        }
+        patterns = patternList.toArray(new String[0]);
+
+        charClass = new char[Character.MAX_VALUE + 1];
+        int classes = 1;
+        long totalLength = 0;
+        for (String pattern : patterns) {
+        	totalLength += pattern.length();
+        	for (int j = 0; j < pattern.length(); j++) {
+        		char c = caseInsensitive ? CaseFolding.CHAR_FOLD[pattern.charAt(j)] : pattern.charAt(j);
+        		if (charClass[c] == 0)
+        			charClass[c] = (char) classes++;
+        	}
+        }
+        classCount = classes;
+
+        if (caseInsensitive) {
+        	char[] foldedClass = charClass.clone();
+        	for (int c = 0; c <= Character.MAX_VALUE; c++)
+        		charClass[c] = foldedClass[CaseFolding.CHAR_FOLD[c]];
+        }
+
+        long maxTableSize = (totalLength + 1) * classCount;
+        if (maxTableSize > Integer.MAX_VALUE - 8)
+        	throw new IllegalArgumentException("pattern set too large for an Aho-Corasick table: " + maxTableSize + " entries");
+
+        //build the trie. -1 marks a transition that is not in the trie
+        int[] table = new int[(int) maxTableSize];
+        Arrays.fill(table, -1);
+        int[] output = new int[(int) totalLength + 1];
+        Arrays.fill(output, -1);
+        nextOutput = new int[patterns.length];
+        int stateCount = 1;
+
+        for (int patternId = 0; patternId < patterns.length; patternId++) {
+        	String pattern = patterns[patternId];
+        	int state = 0;
+        	for (int j = 0; j < pattern.length(); j++) {
+        		int slot = state * classCount + charClass[pattern.charAt(j)];
+        		if (table[slot] < 0)
+        			table[slot] = stateCount++;
+        		state = table[slot];
+        	}
+        	nextOutput[patternId] = output[state];
+        	output[state] = patternId;
+        }
+
+        transitions = Arrays.copyOf(table, stateCount * classCount);
+        outputPattern = Arrays.copyOf(output, stateCount);
+        outputLink = new int[stateCount];
+        buildFailureLinks(stateCount);
+    }
+
+    /*
+     * Breadth first walk over the trie. A state's failure link is the longest proper suffix of its
+     * string that is also in the trie, and every state is visited after the states its suffixes lead to.
+     */
+    private void buildFailureLinks(int stateCount) {
+        int[] failure = new int[stateCount];
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+
+        for (int c = 0; c < classCount; c++) {
+        	int child = transitions[c];
+        	if (child < 0) {
+        		transitions[c] = 0;
+        	} else {
+        		failure[child] = 0;
+        		queue[tail++] = child;
+        	}
+        }
+
+        while (head < tail) {
+        	int state = queue[head++];
+        	int row = state * classCount;
+        	int failureRow = failure[state] * classCount;
+
+        	for (int c = 0; c < classCount; c++) {
+        		int child = transitions[row + c];
+        		if (child < 0) {
+        			transitions[row + c] = transitions[failureRow + c];
+        		} else {
+        			failure[child] = transitions[failureRow + c];
+        			outputLink[child] = outputPattern[failure[child]] >= 0 ? failure[child] : outputLink[failure[child]];
+        			queue[tail++] = child;
+        		}
+        	}
+        }
+    }
+
+    /*
+     * Runs the automaton over the text. At each position it reports the patterns ending at the current state,
+     * if any, and then those of every state on the output links, which are the shorter patterns ending at the same place.
+     */
+    @Override
+    public void search(CharSequence text, MatchSink sink) {
+        int textLength = text.length();
+        int state = 0;
+
+        for (int i = 0; i < textLength; i++) {
+        	state = transitions[state * classCount + charClass[text.charAt(i)]];
+
+        	int outputState = outputPattern[state] >= 0 ? state : outputLink[state];
+        	while (outputState > 0) {
+        		for (int patternId = outputPattern[outputState]; patternId >= 0; patternId = nextOutput[patternId]) {
+        			if (!sink.match(patternId, i + 1 - patterns[patternId].length(), i + 1))
+        				return;
+        		}
+        		outputState = outputLink[outputState];
+        	}
+        }
+    }
+
+    @Override
+    public String getPattern(int patternId) {
+        return patterns[patternId];
+    }
+
+    @Override
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    /*
+     * Number of states in the automaton, for sizing decisions.
+     */
+    public int getStateCount() {
+        return outputPattern.length;
+    }
+}
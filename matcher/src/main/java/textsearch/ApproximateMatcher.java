@@ -0,0 +1,225 @@
+package textsearch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/*
+ * This is the class that finds the patterns with up to k characters wrong, for terms with typos or OCR noise.
+ * A match is a place in the text where the pattern's length of characters differs from the pattern
+ * in at most k positions (Hamming distance), so no characters are taken as inserted or left out.
+ *
+ * Each pattern is cut into k+1 segments. k wrong characters can spoil at most k of them, so one segment
+ * is always found exactly wherever the pattern matches. The segments of all patterns are compiled into one
+ * PatternIndex and the text is scanned once by a RollingHash, which finds them with its rolling windows.
+ * Each segment found gives the one place the pattern could start, which is checked character by character
+ * and given up as soon as more than k characters differ.
+ * This is one pass over the text whatever k is, where listing every typo of every pattern would grow
+ * the pattern set by about (pattern length * alphabet size)^k.
+ *
+ * Segments should be a few characters long, so k should stay well below the length of the shortest pattern.
+ * Very short segments are found almost everywhere and nearly every position of the text gets checked.
+ * Matches are not reported in offset order.
+ */
+public class ApproximateMatcher implements MultiPatternMatcher {
+
+    private final int maxMismatches;
+    private final char[] foldTable;              //character -> folded character, null when the search is case-sensitive
+    private final String[] patterns;             //patterns indexed by pattern id
+    private final char[] patternChars;           //the patterns' characters, folded when the search ignores case
+    private final int[] patternOffsets;          //start of each pattern in patternChars, and the end of the last
+    private final int[] segmentOffsets;          //start of segment j of pattern p within p at p * (k + 2) + j, and p's length after the last
+    private final RollingHash segmentSearcher;   //finds the distinct segments of all the patterns
+    private final int[] firstOccurrence;         //segment id -> start of its occurrences in the two arrays below, plus the end of the last
+    private final int[] occurrencePattern;       //pattern id of each place a segment occurs
+    private final int[] occurrenceSegment;       //segment number in that pattern, 0 to k
+    private final int minPatternLength;
+    private final int maxPatternLength;
+
+    /*
+     * Constructor
+     * Case matters.
+     */
+    public ApproximateMatcher(Set<String> patternSet, int maxMismatches) {
+        this(patternSet, maxMismatches, false);
+    }
+
+    /*
+     * Constructor with a choice of case-insensitive search. A character that differs only in case is not a mismatch.
+     * Empty patterns are dropped. A pattern of maxMismatches characters or fewer would match anywhere,
+     * so it is rejected with an IllegalArgumentException.
+     */
+    public ApproximateMatcher(Set<String> patternSet, int maxMismatches, boolean caseInsensitive) {
+        if (maxMismatches < 0)
+        	throw new IllegalArgumentException("maxMismatches must not be negative: " + maxMismatches);
+        this.maxMismatches = maxMismatches;
+        this.foldTable = caseInsensitive ? CaseFolding.CHAR_FOLD : null;
+        int segments = maxMismatches + 1;
+
+        List<String> patternList = new ArrayList<String>();
+        int totalLength = 0;
+        for (String pattern : patternSet) {
+        	if (pattern.length() == 0)
+        		continue;
+        	if (pattern.length() <= maxMismatches)
+        		throw new IllegalArgumentException("pattern \"" + pattern + "\" is not longer than " + maxMismatches + " mismatches");
+        	patternList.add(pattern);
+        	totalLength += pattern.length();
+        }
+        patterns = patternList.toArray(new String[0]);
+
+        patternChars = new char[totalLength];
+        patternOffsets = new int[patterns.length + 1];
+        segmentOffsets = new int[patterns.length * (segments + 1)];
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+
+        //cut every pattern into segments as equal in length as they can be, and give each distinct segment an id
+        Map<String, Integer> segmentIds = new HashMap<String, Integer>();
+        List<List<Integer>> occurrences = new ArrayList<List<Integer>>();
+        for (int patternId = 0; patternId < patterns.length; patternId++) {
+        	String pattern = patterns[patternId];
+        	int start = patternOffsets[patternId];
+        	int length = pattern.length();
+        	for (int j = 0; j < length; j++)
+        		patternChars[start + j] = fold(pattern.charAt(j));
+        	patternOffsets[patternId + 1] = start + length;
+
+        	int base = patternId * (segments + 1);
+        	for (int s = 0; s <= segments; s++)
+        		segmentOffsets[base + s] = s * length / segments;
+        	for (int s = 0; s < segments; s++) {
+        		String segment = new String(patternChars, start + segmentOffsets[base + s], segmentOffsets[base + s + 1] - segmentOffsets[base + s]);
+        		Integer segmentId = segmentIds.get(segment);
+        		if (segmentId == null) {
+        			segmentId = segmentIds.size();
+        			segmentIds.put(segment, segmentId);
+        			occurrences.add(new ArrayList<Integer>());
+        		}
+        		//pattern id and segment number packed in one int
+        		occurrences.get(segmentId).add(patternId * segments + s);
+        	}
+
+        	min = Math.min(min, length);
+        	max = Math.max(max, length);
+        }
+        minPatternLength = patterns.length > 0 ? min : 0;
+        maxPatternLength = max;
+
+        //the segments are folded already, and a case-insensitive index folds the text the same way as it hashes it
+        PatternIndex segmentIndex = new PatternIndex(new HashSet<String>(segmentIds.keySet()), HashScheme.MERSENNE_61, caseInsensitive);
+        segmentSearcher = new RollingHash(segmentIndex);
+
+        //the index numbers the segments its own way, so lay out the occurrences by its ids
+        firstOccurrence = new int[segmentIndex.getPatternCount() + 1];
+        occurrencePattern = new int[patterns.length * segments];
+        occurrenceSegment = new int[patterns.length * segments];
+        int next = 0;
+        for (int indexId = 0; indexId < segmentIndex.getPatternCount(); indexId++) {
+        	firstOccurrence[indexId] = next;
+        	for (int packed : occurrences.get(segmentIds.get(segmentIndex.getPattern(indexId)))) {
+        		occurrencePattern[next] = packed / segments;
+        		occurrenceSegment[next] = packed % segments;
+        		next++;
+        	}
+        }
+        firstOccurrence[segmentIndex.getPatternCount()] = next;
+    }
+
+    /*
+     * Searches the text and hands every approximate match to the sink, once for each pattern and position,
+     * however many of its segments were found there.
+     */
+    @Override
+    public void search(CharSequence text, MatchSink sink) {
+        int textLength = text.length();
+        segmentSearcher.search(text, (segmentId, segmentStart, segmentEnd) -> {
+        	for (int o = firstOccurrence[segmentId]; o < firstOccurrence[segmentId + 1]; o++) {
+        		int patternId = occurrencePattern[o];
+        		int segment = occurrenceSegment[o];
+        		long start = segmentStart - segmentOffsets[patternId * (maxMismatches + 2) + segment];
+        		int length = patternOffsets[patternId + 1] - patternOffsets[patternId];
+        		if (start < 0 || start + length > textLength)
+        			continue;
+        		if (verify(text, (int) start, patternId, segment) && !sink.match(patternId, start, start + length))
+        			return false;
+        	}
+        	return true;
+        });
+    }
+
+    /*
+     * Checks the pattern at start, where its segment number found is known to match exactly.
+     * Segments are compared in order and the check stops as soon as more than maxMismatches characters differ.
+     * An earlier segment that matches exactly was found at this same start too, so the match is left
+     * to that segment and this one returns false; that way every match is reported once without keeping
+     * a set of the matches reported so far.
+     */
+    private boolean verify(CharSequence text, int start, int patternId, int found) {
+        int base = patternId * (maxMismatches + 2);
+        int patternStart = patternOffsets[patternId];
+        int mismatches = 0;
+
+        for (int s = 0; s <= maxMismatches; s++) {
+        	if (s == found)
+        		continue;
+        	int segmentMismatches = 0;
+        	for (int j = segmentOffsets[base + s]; j < segmentOffsets[base + s + 1]; j++) {
+        		if (fold(text.charAt(start + j)) != patternChars[patternStart + j]) {
+        			segmentMismatches++;
+        			if (mismatches + segmentMismatches > maxMismatches)
+        				return false;
+        		}
+        	}
+        	if (segmentMismatches == 0 && s < found)
+        		return false;
+        	mismatches += segmentMismatches;
+        }
+        return true;
+    }
+
+    /*
+     * Returns the number of characters that differ between the pattern and the text at start,
+     * for showing how close a match is.
+     */
+    public int mismatches(CharSequence text, long start, int patternId) {
+        int patternStart = patternOffsets[patternId];
+        int length = patternOffsets[patternId + 1] - patternStart;
+        int mismatches = 0;
+        for (int j = 0; j < length; j++) {
+        	if (fold(text.charAt((int) start + j)) != patternChars[patternStart + j])
+        		mismatches++;
+        }
+        return mismatches;
+    }
+
+    private char fold(char c) {
+        return foldTable == null ? c : foldTable[c];
+    }
+
+    @Override
+    public String getPattern(int patternId) {
+        return patterns[patternId];
+    }
+
+    @Override
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    public int getMaxMismatches() {
+        return maxMismatches;
+    }
+
+    public int getMinPatternLength() {
+        return minPatternLength;
+    }
+
+    public int getMaxPatternLength() {
+        return maxPatternLength;
+    }
+}
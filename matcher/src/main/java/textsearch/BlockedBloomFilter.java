@@ -0,0 +1,111 @@
+package textsearch;
+
+import java.nio.LongBuffer;
+
+
+/*
+ * This is the class that answers "might this hash code be in the table?" from one cache line.
+ * With millions of patterns a band's PrefixHashTable no longer fits in the CPU cache, so almost every
+ * window of the text costs a cache miss just to find out that no pattern has its hash code.
+ * The filter is much smaller than the table, so it stays in cache and rejects most of those windows first.
+ *
+ * It is a split block Bloom filter: the bits are grouped in blocks of 8 longs, 64 bytes, one cache line.
+ * A key picks one block and sets one bit in each of the block's 8 longs, so both adding and checking
+ * a key touch a single cache line. It can answer yes for a key that was never added, but never no for
+ * one that was. With 16 bits per key about 1 in 1000 keys that were never added get a yes.
+ * The bits are read through a LongBuffer, which wraps an array for a filter built here
+ * and is a view of the mapping for a filter loaded from a compiled index file.
+ */
+public class BlockedBloomFilter {
+
+    private static final int LONGS_PER_BLOCK = 8;
+    static final int BITS_PER_KEY = 16;
+
+    private final LongBuffer words;
+    private final int blockMask;
+
+    /*
+     * Constructor
+     * It sizes the filter for the number of keys expected, rounded up to a power of 2 blocks.
+     */
+    public BlockedBloomFilter(int expectedKeys) {
+        long bits = Math.max(1, (long) expectedKeys) * BITS_PER_KEY;
+        long blocks = Math.max(1, (bits + 511) / 512);
+        if (blocks > 1 << 26)
+        	throw new IllegalArgumentException("too many keys for a BlockedBloomFilter: " + expectedKeys);
+
+        int blockCount = Integer.highestOneBit((int) blocks * 2 - 1);
+        words = LongBuffer.wrap(new long[blockCount * LONGS_PER_BLOCK]);
+        blockMask = blockCount - 1;
+    }
+
+    /*
+     * Constructor for a filter read back from a compiled index file. The bits are used where they are.
+     */
+    BlockedBloomFilter(LongBuffer words) {
+        int blockCount = words.capacity() / LONGS_PER_BLOCK;
+        if (blockCount == 0 || Integer.bitCount(blockCount) != 1 || words.capacity() % LONGS_PER_BLOCK != 0)
+        	throw new IllegalArgumentException("filter size must be a power of 2 blocks: " + words.capacity());
+
+        this.words = words;
+        this.blockMask = blockCount - 1;
+    }
+
+    /*
+     * Builds a filter holding every key of the table.
+     */
+    static BlockedBloomFilter of(PrefixTable table) {
+        BlockedBloomFilter filter = new BlockedBloomFilter(table.size());
+        for (int slot = 0; slot < table.capacity(); slot++) {
+        	long key = table.keyAt(slot);
+        	if (key != PrefixHashTable.EMPTY)
+        		filter.add(key);
+        }
+        return filter;
+    }
+
+    public void add(long key) {
+        int block = block(key);
+        long bits = bits(key);
+        for (int j = 0; j < LONGS_PER_BLOCK; j++)
+        	words.put(block + j, words.get(block + j) | 1L << (bits >>> 6 * j));
+    }
+
+    /*
+     * Returns false if the key was certainly never added.
+     * This is checked at every text position before the table, so it only reads the one block.
+     */
+    public boolean mightContain(long key) {
+        int block = block(key);
+        long bits = bits(key);
+        for (int j = 0; j < LONGS_PER_BLOCK; j++) {
+        	if ((words.get(block + j) & 1L << (bits >>> 6 * j)) == 0)
+        		return false;
+        }
+        return true;
+    }
+
+    /*
+     * The bits of the filter, for writing it to a compiled index file.
+     */
+    LongBuffer words() {
+        return words;
+    }
+
+    /*
+     * Index of the first long of the key's block. The high bits of the mixed key pick the block.
+     */
+    private int block(long key) {
+        long h = key * 0xC2B2AE3D27D4EB4FL;
+        return ((int) (h >>> 32) & blockMask) * LONGS_PER_BLOCK;
+    }
+
+    /*
+     * Eight 6-bit bit numbers, one for each long of the block, mixed from the key independently of the block.
+     * 1L << n only uses the low 6 bits of n, so bits >>> 6 * j gives the j-th of them.
+     */
+    private static long bits(long key) {
+        long h = (key ^ key >>> 29) * 0xBF58476D1CE4E5B9L;
+        return h ^ h >>> 32;
+    }
+}
@@ -0,0 +1,32 @@
+package textsearch;
+
+/*
+ * This is the class that holds the lookup tables for case-insensitive search.
+ * A character is folded to Character.toLowerCase(Character.toUpperCase(c)), which is the comparison
+ * String.equalsIgnoreCase makes, so two strings fold to the same characters exactly when they are equal ignoring case.
+ * Searches fold each character as they hash and compare it, so the text is never copied to change its case.
+ */
+final class CaseFolding {
+
+    /*
+     * Folded form of every char.
+     */
+    static final char[] CHAR_FOLD = new char[Character.MAX_VALUE + 1];
+
+    /*
+     * Folded form of every byte. Only ASCII letters are folded, the bytes of multi-byte UTF-8
+     * characters are left alone, so byte searches ignore the case of ASCII letters only.
+     */
+    static final byte[] ASCII_FOLD = new byte[256];
+
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++)
+        	CHAR_FOLD[c] = Character.toLowerCase(Character.toUpperCase((char) c));
+
+        for (int b = 0; b < 256; b++)
+        	ASCII_FOLD[b] = (byte) (b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b);
+    }
+
+    private CaseFolding() {
+    }
+}
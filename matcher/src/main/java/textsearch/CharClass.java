@@ -0,0 +1,69 @@
+package textsearch;
+
+import java.util.function.IntPredicate;
+
+
+/*
+ * This is the class that says which characters make up a token for TokenMatcher.
+ * A token is a longest run of characters in the class, everything else separates tokens.
+ * It is a lookup table over every char, so classifying a character is one array read.
+ * A CharClass never changes, with and without return a new one.
+ */
+public final class CharClass {
+
+    /*
+     * Letters and digits of any script. "don't" is the two tokens "don" and "t".
+     */
+    public static final CharClass LETTERS_AND_DIGITS = new CharClass(Character::isLetterOrDigit);
+
+    /*
+     * Everything but whitespace, so tokens are what String.split("\\s+") would give.
+     */
+    public static final CharClass NON_WHITESPACE = new CharClass(c -> !Character.isWhitespace(c));
+
+    private final boolean[] member;
+
+    private CharClass(IntPredicate inClass) {
+        member = new boolean[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++)
+        	member[c] = inClass.test(c);
+    }
+
+    private CharClass(boolean[] member) {
+        this.member = member;
+    }
+
+    /*
+     * A class of exactly the given characters.
+     */
+    public static CharClass of(String chars) {
+        boolean[] member = new boolean[Character.MAX_VALUE + 1];
+        for (int i = 0; i < chars.length(); i++)
+        	member[chars.charAt(i)] = true;
+        return new CharClass(member);
+    }
+
+    /*
+     * This class with the given characters added, for example LETTERS_AND_DIGITS.with("'-") to keep "don't" and "e-mail" whole.
+     */
+    public CharClass with(String chars) {
+        boolean[] changed = member.clone();
+        for (int i = 0; i < chars.length(); i++)
+        	changed[chars.charAt(i)] = true;
+        return new CharClass(changed);
+    }
+
+    /*
+     * This class with the given characters taken out.
+     */
+    public CharClass without(String chars) {
+        boolean[] changed = member.clone();
+        for (int i = 0; i < chars.length(); i++)
+        	changed[chars.charAt(i)] = false;
+        return new CharClass(changed);
+    }
+
+    public boolean contains(char c) {
+        return member[c];
+    }
+}
@@ -0,0 +1,95 @@
+package textsearch;
+
+import java.util.Arrays;
+
+
+/*
+ * This is the class that finds the next position in the text where a match could start.
+ * It holds the set of characters that patterns start with, including every case variant for a
+ * case-insensitive index. A window that starts with any other character cannot match, so a skip-scan
+ * jumps over runs of those characters and only hashes and probes the windows that start with one of the set.
+ *
+ * This class checks one character at a time against a lookup table. When the jdk.incubator.vector module
+ * is present (java --add-modules jdk.incubator.vector) and the set is small, create returns a
+ * VectorFirstCharFilter instead, which compares a whole vector of characters with the set at once.
+ */
+class FirstCharFilter {
+
+    static final int MAX_VECTOR_CHARS = 16;     //more characters than this take longer to compare than the lookup table
+    static final boolean VECTOR_API_PRESENT = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    final char[] firstChars;                    //the set, sorted
+    final boolean[] member;                     //character -> is it in the set
+
+    FirstCharFilter(char[] firstChars) {
+        this.firstChars = firstChars;
+        member = new boolean[Character.MAX_VALUE + 1];
+        for (char c : firstChars)
+        	member[c] = true;
+    }
+
+    /*
+     * Builds the filter for the first characters of the index's patterns.
+     */
+    static FirstCharFilter create(PatternIndex index) {
+        boolean[] first = new boolean[Character.MAX_VALUE + 1];
+        for (int patternId = 0; patternId < index.getPatternCount(); patternId++) {
+        	if (index.getPatternLength(patternId) > 0)
+        		first[index.patternChars.get(index.patternOffsets.get(patternId))] = true;
+        }
+
+        //a case-insensitive index also has to stop at every character that folds the same as a first character
+        if (index.foldTable != null) {
+        	boolean[] folded = new boolean[Character.MAX_VALUE + 1];
+        	for (int c = 0; c <= Character.MAX_VALUE; c++) {
+        		if (first[c])
+        			folded[index.foldTable[c]] = true;
+        	}
+        	for (int c = 0; c <= Character.MAX_VALUE; c++)
+        		first[c] = folded[index.foldTable[c]];
+        }
+
+        int count = 0;
+        char[] firstChars = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+        	if (first[c])
+        		firstChars[count++] = (char) c;
+        }
+        firstChars = Arrays.copyOf(firstChars, count);
+
+        if (VECTOR_API_PRESENT && count > 0 && count <= MAX_VECTOR_CHARS) {
+        	try {
+        		return new VectorFirstCharFilter(firstChars);
+        	} catch (LinkageError e) {
+        		//the module is there but cannot be used, so fall back to the lookup table
+        	}
+        }
+        return new FirstCharFilter(firstChars);
+    }
+
+    /*
+     * Returns true if next(char[]...) compares several characters at once, so it pays to copy the text into an array first.
+     */
+    boolean isVectorized() {
+        return false;
+    }
+
+    /*
+     * Returns the first position from from up to, but not including, to whose character is in the set, or to if there is none.
+     */
+    int next(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+        	if (member[text.charAt(i)])
+        		return i;
+        }
+        return to;
+    }
+
+    int next(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+        	if (member[chars[i]])
+        		return i;
+        }
+        return to;
+    }
+}
@@ -0,0 +1,40 @@
+package textsearch;
+
+/*
+ * This is the sink for stop-at-first-hit searches.
+ * It keeps the first match it is given and tells the search to stop, so a question like
+ * "does this document contain any of the terms" is answered as soon as one is found.
+ * The first match is the first one reported, which is not always the one with the smallest start.
+ */
+public class FirstMatchSink implements MatchSink {
+
+    private boolean found;
+    private int patternId = -1;
+    private long start = -1;
+    private long end = -1;
+
+    @Override
+    public boolean match(int patternId, long start, long end) {
+        found = true;
+        this.patternId = patternId;
+        this.start = start;
+        this.end = end;
+        return false;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public int getPatternId() {
+        return patternId;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+}
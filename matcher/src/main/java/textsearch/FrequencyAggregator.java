@@ -0,0 +1,128 @@
+package textsearch;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+
+/*
+ * This is the class that counts how often each pattern occurs over a stream of documents.
+ * It is for questions like "which of these terms are most common in the archive", where the positions
+ * of the matches do not matter. No Map of positions is built and no matched text is copied.
+ *
+ * Each thread takes documents from the stream a batch at a time and counts into its own PatternCounter,
+ * so the threads share nothing but the stream while they search. When the stream is used up the
+ * counters are added together once. The only lock is on taking a batch, so the search time grows
+ * linearly with the work and shrinks with the number of threads until the stream itself is the bottleneck.
+ */
+public class FrequencyAggregator {
+
+    public static final int DEFAULT_BATCH_SIZE = 64;   //documents a thread takes from the stream at a time
+
+    private final MultiPatternMatcher matcher;
+    private final int batchSize;
+
+    public FrequencyAggregator(MultiPatternMatcher matcher) {
+        this(matcher, DEFAULT_BATCH_SIZE);
+    }
+
+    /*
+     * Constructor with a choice of batch size. Small documents want bigger batches, so the threads
+     * do not wait on each other to take the next one.
+     */
+    public FrequencyAggregator(MultiPatternMatcher matcher, int batchSize) {
+        if (batchSize < 1)
+        	throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.matcher = matcher;
+        this.batchSize = batchSize;
+    }
+
+    /*
+     * Counts the matches of every pattern in every document, on the common ForkJoinPool.
+     */
+    public PatternFrequencies aggregate(Iterator<? extends CharSequence> documents) {
+        return aggregate(documents, ForkJoinPool.commonPool());
+    }
+
+    /*
+     * Counts the matches of every pattern in every document, with one task for each thread of the pool.
+     * The iterator is only called by one thread at a time, so it does not have to be thread-safe.
+     * An exception from the iterator or the search stops every task and is thrown from here.
+     */
+    public PatternFrequencies aggregate(Iterator<? extends CharSequence> documents, ForkJoinPool pool) {
+        DocumentStream stream = new DocumentStream(documents);
+
+        List<ForkJoinTask<PatternCounter>> tasks = new ArrayList<ForkJoinTask<PatternCounter>>();
+        for (int t = 0; t < pool.getParallelism(); t++)
+        	tasks.add(pool.submit(() -> countStripe(stream)));
+
+        long[] totals = new long[matcher.getPatternCount()];
+        RuntimeException failure = null;
+        for (ForkJoinTask<PatternCounter> task : tasks) {
+        	try {
+        		totals = task.join().addTo(totals);
+        	} catch (RuntimeException e) {
+        		stream.stop();
+        		if (failure == null)
+        			failure = e;
+        	}
+        }
+        if (failure != null)
+        	throw failure;
+
+        return new PatternFrequencies(matcher, totals, stream.taken);
+    }
+
+    /*
+     * The work of one thread: search batches of documents until the stream is used up.
+     */
+    private PatternCounter countStripe(DocumentStream stream) {
+        PatternCounter counter = new PatternCounter(matcher.getPatternCount());
+        CharSequence[] batch = new CharSequence[batchSize];
+
+        try {
+        	for (int n = stream.next(batch); n > 0; n = stream.next(batch)) {
+        		for (int i = 0; i < n; i++) {
+        			matcher.search(batch[i], counter);
+        			batch[i] = null;
+        		}
+        	}
+        } catch (RuntimeException | Error e) {
+        	stream.stop();
+        	throw e;
+        }
+        return counter;
+    }
+
+    /*
+     * The documents, handed out a batch at a time to whichever thread asks.
+     */
+    private static final class DocumentStream {
+
+        private final Iterator<? extends CharSequence> documents;
+        private boolean stopped;
+        private long taken;         //documents handed out so far, read after every task has finished
+
+        DocumentStream(Iterator<? extends CharSequence> documents) {
+        	this.documents = documents;
+        }
+
+        /*
+         * Fills the batch with the next documents.
+         * @return the number of documents put in the batch, 0 when the stream is used up or stopped
+         */
+        synchronized int next(CharSequence[] batch) {
+        	int n = 0;
+        	while (!stopped && n < batch.length && documents.hasNext())
+        		batch[n++] = documents.next();
+        	taken += n;
+        	return n;
+        }
+
+        synchronized void stop() {
+        	stopped = true;
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package textsearch;
+
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JFrame; 
+import javax.swing.JButton; 
+import javax.swing.JCheckBox;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.JProgressBar;
+import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Document;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyleContext;
+import javax.swing.text.StyledDocument;
+
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.Panel;
+import java.awt.event.ActionListener; 
+import java.awt.event.ActionEvent;  
+import java.nio.CharBuffer;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+public class GUI {  //Note: Typically the main method will be in a //separate class. As this is a simple one class //example it's all in the one class. 
+
+  private static final int SEARCH_SLICE_LENGTH = 1 << 16;   //characters searched between progress updates and cancel checks
+
+  private JTextArea textArea;
+  private JTextArea patternArea;
+  private JTextArea resultArea;
+  private JTextPane resultPane;
+  private JButton searchButton;
+  private JButton cancelButton;
+  private JProgressBar progressBar;
+  private JCheckBox liveCheckBox;
+  private JCheckBox wholeWordsCheckBox;
+  private SearchWorker searchWorker;                   //the search that is running, null if none
+  private String defaultText;
+  private String defaultPatterns;
+  private MultiPatternMatcher multiplePatternSearch;   //compiled searcher for the patterns of the last search
+  private Set<String> searchedPatternSet;
+  private boolean searchedWholeWords;
+  private int searchedMaxPatternLength;
+  private int textVersion;                             //counts the edits to the text, to tell if the result pane still matches it
+  private int resultVersion = -1;                      //textVersion the result pane was built from
+
+  public static void main(String[] args) { 
+	  SwingUtilities.invokeLater(GUI::new);
+  }  
+  
+  public GUI() { 
+	  
+	  prepareDefaultText();
+	  
+	  prepareDefaultPatterns();
+	  
+	  JFrame guiFrame = new JFrame();  
+      
+      guiFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); 
+      guiFrame.setTitle("Text Search and Match"); 
+      guiFrame.setSize(1200,700);  
+      guiFrame.setLocationRelativeTo(null); //center the window  
+      
+      /*
+       * This section creates a text area for inputing the patters to be searched.
+       * It has a label and textArea and a search button
+       * When the search button is pressed, the event handler for this button
+       * calls the run() method, which starts the search on a background worker.
+       * The progress bar follows the search and the Cancel button stops it.
+       */
+      
+      Panel pattenPanel = new Panel();
+      pattenPanel.setLayout(new BoxLayout(pattenPanel, BoxLayout.PAGE_AXIS));
+         
+	      //pattern text box
+	      patternArea = new JTextArea(defaultPatterns, 1, 1);
+	      patternArea.setLineWrap( true );
+	      patternArea.setWrapStyleWord( true );
+	      TitledBorder titlePattern;
+	      titlePattern = BorderFactory.createTitledBorder("Patterns to be Searched");
+	      titlePattern.setTitleJustification(TitledBorder.CENTER);
+	      patternArea.setBorder(titlePattern);
+	     
+	      pattenPanel.add(patternArea);
+          
+	      //button
+	      searchButton = new JButton("Search");  
+	      searchButton.addActionListener(new ActionListener() { 
+	    	  @Override public void actionPerformed(ActionEvent event) { 
+	    	  run();
+			  } 
+	      });  
+	      
+	      pattenPanel.add(searchButton);
+
+	      cancelButton = new JButton("Cancel");
+	      cancelButton.setEnabled(false);
+	      cancelButton.addActionListener(new ActionListener() {
+	    	  @Override public void actionPerformed(ActionEvent event) {
+	    	  if (searchWorker != null)
+	    		  searchWorker.cancel(false);
+			  }
+	      });
+
+	      pattenPanel.add(cancelButton);
+
+	      progressBar = new JProgressBar(0, 100);
+	      progressBar.setStringPainted(true);
+	      progressBar.setString("");
+	      pattenPanel.add(progressBar);
+
+	      //live mode: every edit to the text rescans just the edited region and patches the result pane
+	      liveCheckBox = new JCheckBox("Live");
+	      liveCheckBox.addActionListener(new ActionListener() {
+	    	  @Override public void actionPerformed(ActionEvent event) {
+	    	  if (liveCheckBox.isSelected() && resultVersion != textVersion)
+	    		  run();
+			  }
+	      });
+	      pattenPanel.add(liveCheckBox);
+
+	      //whole words: patterns only match whole words, searched with a TokenMatcher
+	      wholeWordsCheckBox = new JCheckBox("Whole words");
+	      wholeWordsCheckBox.addActionListener(new ActionListener() {
+	    	  @Override public void actionPerformed(ActionEvent event) {
+	    	  run();
+			  }
+	      });
+	      pattenPanel.add(wholeWordsCheckBox);
+      
+      
+      /*
+       * This is the section that creates the "Text to be Searched" text area in the
+       * middle of the screen. It is pre-populated with some defaults sentences. But it allows 
+       * user to copy and paste anything text. For example, find some text on any website and 
+       * paste it here.
+       */
+	  Panel textPanel = new Panel();
+	  textPanel.setLayout(new BoxLayout(textPanel, BoxLayout.PAGE_AXIS));
+	  	
+	      //text area
+	      textArea = new JTextArea(defaultText, 5, 10);
+	      textArea.setPreferredSize(new Dimension(100, 100));
+	      textArea.setLineWrap(true);
+	      textArea.getDocument().addDocumentListener(new DocumentListener() {
+	    	  @Override public void insertUpdate(DocumentEvent event) {
+	    		  textEdited(event.getOffset(), event.getLength(), true);
+	    	  }
+	    	  @Override public void removeUpdate(DocumentEvent event) {
+	    		  textEdited(event.getOffset(), event.getLength(), false);
+	    	  }
+	    	  @Override public void changedUpdate(DocumentEvent event) {
+	    	  }
+	      });
+	      
+	      TitledBorder titleText;
+	      titleText = BorderFactory.createTitledBorder("Text to be Searched");
+	      titleText.setTitleJustification(TitledBorder.CENTER);
+	      textArea.setBorder(titleText);
+	      
+	      JScrollPane scrollTextPane = new JScrollPane();
+	      scrollTextPane.add(textArea);
+	      scrollTextPane.setPreferredSize(new Dimension(100, 100));
+	      textPanel.add(textArea);
+	      //textPanel.add(scrollTextPane);
+	    
+	      
+	      
+      /*
+       * This is the section that creates the display area at button.
+       * The original text is re-displayed here and the matched words are turned into
+       * red font based on the output of the RollingHash algorithm
+       */
+      Panel resultPanel = new Panel();
+      resultPanel.setLayout(new BoxLayout(resultPanel, BoxLayout.PAGE_AXIS));
+      	
+       
+      	//result area
+      	resultArea = new JTextArea("", 5, 10);
+        resultArea.setPreferredSize(new Dimension(100, 100));
+        resultArea.setLineWrap(true);
+        TitledBorder titleResult;
+        titleResult = BorderFactory.createTitledBorder("Search Results");
+        titleResult.setTitleJustification(TitledBorder.CENTER);
+        resultArea.setBorder(titleResult);
+        
+        resultPane = new JTextPane();                
+        resultPane.setBorder(titleResult);
+        resultPane.setMargin(new Insets(5, 5, 5, 5));
+        
+	      
+        JScrollPane scrollResultPane = new JScrollPane();
+        scrollResultPane.add(resultArea);
+        resultPanel.add(resultPane);
+        
+      
+      //add to frame
+      Container contentPane = guiFrame.getContentPane();
+      
+      contentPane.setLayout(new BoxLayout(contentPane, BoxLayout.PAGE_AXIS));
+      contentPane.add(pattenPanel);
+      contentPane.add(textPanel);
+      contentPane.add(resultPanel);
+     
+      guiFrame.setVisible(true); 
+     
+  }  
+  
+  /*
+   * Populate the the "Text to be Searched" textArea with some sentences
+   */
+  public  void prepareDefaultText() {
+	  defaultText = new StringBuilder()
+      .append("It was the best of times, it was the worst of times,\n")
+      .append("it was the age of wisdom, it was the age of foolishness,\n")
+      .append("it was the epoch of belief, it was the epoch of incredulity,\n")
+      .append("it was the season of Light, it was the season of Darkness,\n")
+      .append("it was the spring of hope, it was the winter of despair,\n")
+      .append("we had everything before us, we had nothing before us")
+      .toString();
+  }
+  
+  /*
+   * populate the "Patterns to be Searched" textarea with some
+   * words
+   */
+  public void prepareDefaultPatterns() {
+	  
+	  defaultPatterns = "times wisdom belief before the age";
+  }
+  
+  /*
+   * This is the main method that takes string from "Patterns to be Matched" textarea
+   * and split the string into individual patterns then stored in a hashSet.
+   * It then starts a SearchWorker, which runs the search engine MatcherFactory picks for the patterns
+   * off the Event Dispatch Thread, so the window stays responsive while a large text is searched.
+   */
+  public void run() {
+      
+      String text = textArea.getText();
+      
+      String patternText = patternArea.getText();
+      
+      if (patternText.length() > 0) {
+    	  
+    	  
+    	  //Clean up the pattern string a bit. Remove common special characters
+    	  patternText = patternText.replace(",", "");
+    	  patternText = patternText.replace(".", "");
+    	  patternText = patternText.replace("\"", "");
+    	  patternText = patternText.replace("'", "");
+    	  patternText = patternText.replace("!", "");
+    	  patternText = patternText.replace("[", "");
+    	  patternText = patternText.replace("]", "");
+    	  patternText = patternText.replace("(", "");
+    	  patternText = patternText.replace(")", "");
+    	  
+    	  
+    	  //Splitting it into individual patterns by space.
+    	  //For whole words, by anything that is not a letter or digit, the way TokenMatcher splits the text
+    	  boolean wholeWords = wholeWordsCheckBox.isSelected();
+    	  String[] patterns = wholeWords ? patternText.split("[^\\p{L}\\p{Nd}]+") : patternText.split(" ");
+    	  
+    	  //parse out each pattern and store them in a HashSet
+    	  Set<String> patternSet = new HashSet<String>();
+    	  for (String pattern : patterns) {
+    		  //don't add whitespace or stopwords like "a", "of", "the", "is", "The"
+    		  if (pattern != null && pattern.trim().length() > 1 
+    		      && !TokenMatcher.DEFAULT_STOPWORDS.contains(pattern.trim().toLowerCase())) {
+    			  patternSet.add(pattern.trim());
+    		  }
+    	  }
+    	  
+    	  if (patternSet.isEmpty())
+    		  return;
+    	  
+    	  //a new search replaces the one that is running
+    	  if (searchWorker != null)
+    		  searchWorker.cancel(false);
+    	  
+          //The searcher is kept and reused until the patterns change, since compiling them is the expensive part.
+          //A null searcher tells the worker to compile one for the new patterns
+          
+          MultiPatternMatcher searcher = patternSet.equals(searchedPatternSet) && wholeWords == searchedWholeWords ? multiplePatternSearch : null;
+          
+          searchWorker = new SearchWorker(text, patternSet, wholeWords, searcher, textVersion);
+          searchWorker.addPropertyChangeListener(event -> {
+        	  if ("progress".equals(event.getPropertyName()))
+        		  progressBar.setValue((Integer) event.getNewValue());
+          });
+          
+          progressBar.setValue(0);
+          progressBar.setString("searching...");
+          cancelButton.setEnabled(true);
+          searchWorker.execute();
+      }
+  }
+
+  /*
+   * This is the method that keeps the result pane up to date in live mode.
+   * The same edit is made to the result document, then only the region around the edit is searched again.
+   * A match that the edit could have created or broken lies within maxPatternLength - 1 characters of the edited
+   * region, so that window is set back to the normal font, and every match found in a window twice as wide that
+   * reaches into it is turned red again. Highlights outside the window are left alone, and the document shifts
+   * them along with the text, so the work per keystroke does not grow with the size of the text.
+   * For whole words the window is one character wider on each side, since an edit next to a word can make or break
+   * a match that does not overlap it, like typing "re" after "the".
+   * When the result pane does not match the text, or a full search is still running, it searches everything again instead.
+   */
+  private void textEdited(int offset, int length, boolean inserted) {
+	  textVersion++;
+	  if (!liveCheckBox.isSelected())
+		  return;
+
+	  if (searchWorker != null || resultVersion != textVersion - 1 || multiplePatternSearch == null) {
+		  run();
+		  return;
+	  }
+
+	  long startTime = System.nanoTime();
+	  Document textDocument = textArea.getDocument();
+	  StyledDocument sdoc = resultPane.getStyledDocument();
+	  int textLength = textDocument.getLength();
+	  boolean wholeWords = multiplePatternSearch instanceof TokenMatcher;
+	  int reach = wholeWords ? searchedMaxPatternLength : Math.max(0, searchedMaxPatternLength - 1);
+
+	  try {
+		  if (inserted)
+			  sdoc.insertString(offset, textDocument.getText(offset, length), null);
+		  else
+			  sdoc.remove(offset, length);
+
+		  int editEnd = inserted ? offset + length : offset;
+		  int windowStart = Math.max(0, offset - reach);
+		  int windowEnd = Math.min(textLength, editEnd + reach);
+		  int scanStart = Math.max(0, windowStart - reach);
+		  int scanEnd = Math.min(textLength, windowEnd + reach);
+
+		  sdoc.setCharacterAttributes(windowStart, windowEnd - windowStart, SimpleAttributeSet.EMPTY, true);
+
+		  //whole words also need the characters just outside the scan, to tell where the words at its edges begin and end
+		  int textStart = wholeWords ? Math.max(0, scanStart - 1) : scanStart;
+		  int textEnd = wholeWords ? Math.min(textLength, scanEnd + 1) : scanEnd;
+		  String scanText = textDocument.getText(textStart, textEnd - textStart);
+		  AttributeSet asetRed = matchAttributes();
+		  MatchSink patch = (patternId, start, end) -> {
+			  if (textStart + end > windowStart && textStart + start < windowEnd)
+				  sdoc.setCharacterAttributes(textStart + (int) start, (int) (end - start), asetRed, false);
+			  return true;
+		  };
+		  if (wholeWords)
+			  ((TokenMatcher) multiplePatternSearch).search(scanText, scanStart - textStart, scanEnd - textStart, patch);
+		  else
+			  multiplePatternSearch.search(scanText, patch);
+
+		  resultVersion = textVersion;
+		  progressBar.setString("live: rescanned " + (scanEnd - scanStart) + " characters in "
+				  + (System.nanoTime() - startTime) / 1000 + " us");
+	  } catch (BadLocationException e) {
+		  run();
+	  }
+  }
+
+  /*
+   * The font of a matched word in the result pane: red.
+   */
+  private static AttributeSet matchAttributes() {
+	  StyleContext sc = StyleContext.getDefaultStyleContext();
+	  AttributeSet asetRed = sc.addAttribute(SimpleAttributeSet.EMPTY, StyleConstants.Foreground, Color.RED);
+
+	  asetRed = sc.addAttribute(asetRed, StyleConstants.FontFamily, "Lucida Console");
+	  asetRed = sc.addAttribute(asetRed, StyleConstants.Alignment, StyleConstants.ALIGN_JUSTIFIED);
+	  return asetRed;
+  }
+
+  /*
+   * This is the worker that does the search in the background.
+   * It searches the text a slice at a time, so it can report progress and notice a cancel between slices.
+   * The slices overlap by the longest pattern length - 1 and a slice only keeps the matches that start in it,
+   * so a match across a slice edge is found once.
+   *
+   * The matches are marked in a BitSet, then the text and the red font go into a new document that is not
+   * shown yet, one setCharacterAttributes call per run of marked characters instead of one per match.
+   * Swing does not repaint or notify listeners for a document that is not shown, so this is safe off the
+   * Event Dispatch Thread, and done() only has to swap the finished document in.
+   */
+  private class SearchWorker extends SwingWorker<StyledDocument, Void> {
+
+	  private final String text;
+	  private final Set<String> patternSet;
+	  private final boolean wholeWords;
+	  private MultiPatternMatcher searcher;
+	  private final int version;
+	  private int maxPatternLength;
+	  private int matchCount;
+	  private long searchMillis;
+
+	  SearchWorker(String text, Set<String> patternSet, boolean wholeWords, MultiPatternMatcher searcher, int version) {
+		  this.text = text;
+		  this.patternSet = patternSet;
+		  this.wholeWords = wholeWords;
+		  this.searcher = searcher;
+		  this.version = version;
+	  }
+
+	  @Override
+	  protected StyledDocument doInBackground() throws BadLocationException {
+		  long startTime = System.currentTimeMillis();
+
+		  //ask the factory for the search engine that suits these patterns, the RollingHash or Aho-Corasick,
+		  //or take the TokenMatcher for whole words.
+		  //The search ignores case as it goes, so the text is searched and displayed as it was typed
+		  if (searcher == null)
+			  searcher = wholeWords ? new TokenMatcher(patternSet, true) : MatcherFactory.create(patternSet, true);
+
+		  for (String pattern : patternSet)
+			  maxPatternLength = Math.max(maxPatternLength, pattern.length());
+
+		  BitSet marked = new BitSet(text.length());
+		  for (int sliceStart = 0; sliceStart < text.length() && !isCancelled(); sliceStart += SEARCH_SLICE_LENGTH) {
+			  int sliceLength = Math.min(SEARCH_SLICE_LENGTH, text.length() - sliceStart);
+			  int sliceEnd = Math.min(text.length(), sliceStart + sliceLength + maxPatternLength - 1);
+			  int offset = sliceStart;
+
+			  if (searcher instanceof TokenMatcher) {
+				  //the token search takes a range of the whole text and looks past its edges for the word boundaries itself
+				  ((TokenMatcher) searcher).search(text, sliceStart, sliceStart + sliceLength, (patternId, start, end) -> {
+					  marked.set((int) start, (int) end);
+					  matchCount++;
+					  return !isCancelled();
+				  });
+			  } else {
+				  searcher.search(CharBuffer.wrap(text, sliceStart, sliceEnd), (patternId, start, end) -> {
+					  if (start < sliceLength) {
+						  marked.set(offset + (int) start, offset + (int) end);
+						  matchCount++;
+					  }
+					  return !isCancelled();
+				  });
+			  }
+
+			  setProgress((int) ((long) (sliceStart + sliceLength) * 100 / text.length()));
+		  }
+		  searchMillis = System.currentTimeMillis() - startTime;
+
+		  if (isCancelled())
+			  return null;
+
+		  return highlight(text, marked);
+	  }
+
+	  /*
+	   * Builds the result document: the original text, with the marked characters in red font.
+	   */
+	  private StyledDocument highlight(String text, BitSet marked) throws BadLocationException {
+		  AttributeSet asetRed = matchAttributes();
+
+		  StyledDocument sdoc = new DefaultStyledDocument();
+		  sdoc.insertString(0, text, null);
+
+		  //one call for each run of matched characters, overlapping and touching matches share a run
+		  for (int start = marked.nextSetBit(0); start >= 0 && !isCancelled(); start = marked.nextSetBit(start)) {
+			  int end = marked.nextClearBit(start);
+			  sdoc.setCharacterAttributes(start, end - start, asetRed, false);
+			  start = end;
+		  }
+		  return sdoc;
+	  }
+
+	  /*
+	   * Runs on the Event Dispatch Thread when the search finishes, fails or is cancelled.
+	   */
+	  @Override
+	  protected void done() {
+		  if (searchWorker == this) {
+			  searchWorker = null;
+			  cancelButton.setEnabled(false);
+		  }
+
+		  try {
+			  StyledDocument sdoc = get();
+			  multiplePatternSearch = searcher;
+			  searchedPatternSet = patternSet;
+			  searchedWholeWords = wholeWords;
+			  searchedMaxPatternLength = maxPatternLength;
+			  resultVersion = version;
+			  resultPane.setStyledDocument(sdoc);
+			  progressBar.setValue(100);
+			  progressBar.setString(matchCount + " matches in " + searchMillis + " ms");
+		  } catch (CancellationException e) {
+			  if (searchWorker == null)
+				  progressBar.setString("cancelled");
+		  } catch (InterruptedException e) {
+			  Thread.currentThread().interrupt();
+		  } catch (ExecutionException e) {
+			  progressBar.setString("search failed: " + e.getCause());
+		  }
+	  }
+  }
+}
@@ -0,0 +1,588 @@
+package textsearch;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/*
+ * This is the command line tool that searches directory trees for a list of fixed strings, like grep -F -r.
+ *
+ *   java -cp matcher.jar textsearch.Grep [options] (-f patternFile | -e pattern | --index indexFile)... path...
+ *
+ * The patterns are compiled once and the one engine is shared by every thread. The files go thru a pipeline
+ * of three stages joined by bounded queues, so a slow stage holds back the ones before it instead of filling the heap:
+ *
+ *   discovery  one thread walks the trees and queues the regular files
+ *   read       reader threads read small files into memory and map big ones
+ *   search     search threads decode each file a chunk at a time, search it and write its results
+ *
+ * Each file's results are written together, so lines of different files never interleave. Files are
+ * searched as UTF-8, with malformed bytes replaced, and a file with a zero byte near the start is taken
+ * for binary and skipped unless -a is given. With --mismatches k a match may have up to k characters wrong,
+ * see ApproximateMatcher, and the text that matched is written rather than the pattern. An index is searched the way
+ * it was compiled, so -i with --index needs an index compiled to ignore case. A match never takes in
+ * a line break, so every match is within one line. When it is done it writes files/sec and MB/sec to stderr.
+ * The exit status is 0 if anything matched, 1 if nothing did and 2 if there was an error, as for grep.
+ */
+public class Grep {
+
+    static final int CHUNK_LENGTH = 1 << 20;        //characters decoded and searched at a time
+    static final int MAP_THRESHOLD = 1 << 20;       //files this big or bigger are mapped instead of read
+    static final int BINARY_CHECK_LENGTH = 8192;    //bytes at the start of a file checked for a zero byte
+    static final int MAP_SEGMENT_LENGTH = 1 << 30;  //bytes a big file is mapped in at a time
+    static final int MAX_BYTES_PER_CHAR = 4;        //the longest UTF-8 sequence
+
+    /*
+     * How results are written.
+     * LINES - path:line:offset:match for every match, offset counted in characters from the start of the file.
+     * JSON - one JSON object per match with the same fields.
+     * COUNT - path:count for every file with a match.
+     */
+    public enum Format { LINES, JSON, COUNT }
+
+    private final MultiPatternMatcher matcher;
+    private final int maxPatternLength;
+    private final Format format;
+    private final int readThreads;
+    private final int searchThreads;
+    private final boolean virtualThreads;
+    private final boolean searchBinary;
+    private final int mapSegmentLength;
+
+    private final AtomicLong filesSearched = new AtomicLong();
+    private final AtomicLong bytesSearched = new AtomicLong();
+    private final AtomicLong matchCount = new AtomicLong();
+    private final AtomicInteger errorCount = new AtomicInteger();
+
+    /*
+     * Constructor
+     * @param readThreads threads that read and map files
+     * @param searchThreads threads that search them
+     * @param virtualThreads run the stages on virtual threads when the JVM has them (Java 21 and later)
+     */
+    public Grep(MultiPatternMatcher matcher, int maxPatternLength, Format format, int readThreads, int searchThreads,
+    		boolean virtualThreads, boolean searchBinary) {
+        this(matcher, maxPatternLength, format, readThreads, searchThreads, virtualThreads, searchBinary, MAP_SEGMENT_LENGTH);
+    }
+
+    /*
+     * Constructor
+     * @param mapSegmentLength bytes of a big file mapped at a time, small ones let a test cross segment edges
+     */
+    Grep(MultiPatternMatcher matcher, int maxPatternLength, Format format, int readThreads, int searchThreads,
+    		boolean virtualThreads, boolean searchBinary, int mapSegmentLength) {
+        if (readThreads < 1 || searchThreads < 1)
+        	throw new IllegalArgumentException("thread counts must be positive: " + readThreads + ", " + searchThreads);
+        if (mapSegmentLength < 1 || mapSegmentLength > Integer.MAX_VALUE - MAX_BYTES_PER_CHAR)
+        	throw new IllegalArgumentException("mapSegmentLength out of range: " + mapSegmentLength);
+
+        this.matcher = matcher;
+        this.maxPatternLength = maxPatternLength;
+        this.format = format;
+        this.readThreads = readThreads;
+        this.searchThreads = searchThreads;
+        this.virtualThreads = virtualThreads;
+        this.searchBinary = searchBinary;
+        this.mapSegmentLength = mapSegmentLength;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /*
+     * Parses the command line, runs the search and returns the exit status.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Set<String> patternSet = new HashSet<String>();
+        List<Path> roots = new ArrayList<Path>();
+        PatternIndex index = null;
+        boolean ignoreCase = false;
+        boolean wholeWords = false;
+        int mismatches = 0;
+        boolean virtual = false;
+        boolean searchBinary = false;
+        Format format = Format.LINES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int readers = Math.max(1, Math.min(4, threads / 2));
+
+        try {
+        	for (int i = 0; i < args.length; i++) {
+        		String arg = args[i];
+        		switch (arg) {
+        		case "-f":
+        			for (String line : Files.readAllLines(Paths.get(value(args, ++i, arg)), StandardCharsets.UTF_8)) {
+        				if (line.length() > 0)
+        					patternSet.add(line);
+        			}
+        			break;
+        		case "-e":
+        			patternSet.add(value(args, ++i, arg));
+        			break;
+        		case "--index":
+        			index = PatternIndex.load(Paths.get(value(args, ++i, arg)));
+        			break;
+        		case "-i":
+        			ignoreCase = true;
+        			break;
+        		case "-w":
+        			wholeWords = true;
+        			break;
+        		case "--mismatches":
+        			mismatches = Integer.parseInt(value(args, ++i, arg));
+        			break;
+        		case "-a":
+        			searchBinary = true;
+        			break;
+        		case "-c":
+        			format = Format.COUNT;
+        			break;
+        		case "--json":
+        			format = Format.JSON;
+        			break;
+        		case "--threads":
+        			threads = Integer.parseInt(value(args, ++i, arg));
+        			break;
+        		case "--readers":
+        			readers = Integer.parseInt(value(args, ++i, arg));
+        			break;
+        		case "--virtual":
+        			virtual = true;
+        			break;
+        		default:
+        			if (arg.startsWith("-") && arg.length() > 1)
+        				throw new IllegalArgumentException("unknown option " + arg);
+        			roots.add(Paths.get(arg));
+        		}
+        	}
+        	if (patternSet.isEmpty() && index == null)
+        		throw new IllegalArgumentException("no patterns, give -f, -e or --index");
+        	if (index != null && (!patternSet.isEmpty() || wholeWords))
+        		throw new IllegalArgumentException("--index cannot be combined with -f, -e or -w");
+        	if (index != null && ignoreCase && !index.isCaseInsensitive())
+        		throw new IllegalArgumentException("-i needs an index compiled to ignore case, this one is case-sensitive");
+        	if (mismatches > 0 && (index != null || wholeWords))
+        		throw new IllegalArgumentException("--mismatches cannot be combined with --index or -w");
+        	if (roots.isEmpty())
+        		throw new IllegalArgumentException("no files or directories to search");
+
+        	MultiPatternMatcher matcher;
+        	int maxPatternLength = 0;
+        	if (index != null) {
+        		matcher = new RollingHash(index);
+        		maxPatternLength = index.getMaxPatternLength();
+        	} else {
+        		for (String pattern : patternSet)
+        			maxPatternLength = Math.max(maxPatternLength, pattern.length());
+        		//the user listed the words, so none of them is a stopword
+        		if (mismatches > 0)
+        			matcher = new ApproximateMatcher(patternSet, mismatches, ignoreCase);
+        		else
+        			matcher = wholeWords
+        					? new TokenMatcher(patternSet, CharClass.LETTERS_AND_DIGITS, Collections.<String>emptySet(), ignoreCase)
+        					: MatcherFactory.create(patternSet, ignoreCase);
+        	}
+
+        	Grep grep = new Grep(matcher, maxPatternLength, format, readers, threads, virtual, searchBinary);
+        	long startTime = System.nanoTime();
+        	grep.search(roots, out, err);
+        	double seconds = Math.max(1e-9, (System.nanoTime() - startTime) / 1e9);
+
+        	err.printf("%d files, %.1f MB, %d matches in %.3f s: %.0f files/sec, %.1f MB/sec%n",
+        			grep.getFilesSearched(), grep.getBytesSearched() / 1e6, grep.getMatchCount(), seconds,
+        			grep.getFilesSearched() / seconds, grep.getBytesSearched() / 1e6 / seconds);
+
+        	if (grep.getErrorCount() > 0)
+        		return 2;
+        	return grep.getMatchCount() > 0 ? 0 : 1;
+        } catch (IllegalArgumentException | IOException e) {
+        	err.println("grep: " + e.getMessage());
+        	err.println("usage: Grep [-i] [-w | --mismatches k] [-a] [-c | --json] [--threads n] [--readers n] [--virtual]"
+        			+ " (-f patternFile | -e pattern | --index indexFile)... path...");
+        	return 2;
+        } catch (InterruptedException e) {
+        	Thread.currentThread().interrupt();
+        	return 2;
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length)
+        	throw new IllegalArgumentException(option + " needs a value");
+        return args[i];
+    }
+
+    /*
+     * Searches every regular file under the roots and writes the results to out. Errors on single files
+     * are written to err and counted, and the search goes on with the other files. If a stage fails,
+     * say the matcher throws, the error is counted and the other stages are cancelled.
+     */
+    public void search(List<Path> roots, PrintStream out, PrintStream err) throws InterruptedException {
+        BlockingQueue<Path> paths = new ArrayBlockingQueue<Path>(4096);
+        BlockingQueue<FileContent> contents = new ArrayBlockingQueue<FileContent>(2 * searchThreads);
+        AtomicInteger readersLeft = new AtomicInteger(readThreads);
+
+        ExecutorService executor = newExecutor(1 + readThreads + searchThreads);
+        CompletionService<Void> completion = new ExecutorCompletionService<Void>(executor);
+        List<Future<Void>> stages = new ArrayList<Future<Void>>();
+        try {
+        	//the end markers are queued only by a stage that finished, a failed one has the others cancelled instead
+        	stages.add(completion.submit(() -> {
+        		for (Path root : roots)
+        			discover(root, paths, err);
+        		for (int r = 0; r < readThreads; r++)
+        			put(paths, FileContent.END_PATH);
+        		return null;
+        	}));
+
+        	for (int r = 0; r < readThreads; r++) {
+        		stages.add(completion.submit(() -> {
+        			for (Path path = paths.take(); path != FileContent.END_PATH; path = paths.take()) {
+        				FileContent content = read(path, err);
+        				if (content != null)
+        					contents.put(content);
+        			}
+        			//the last reader to finish tells every search thread there is nothing more
+        			if (readersLeft.decrementAndGet() == 0) {
+        				for (int s = 0; s < searchThreads; s++)
+        					contents.put(FileContent.END);
+        			}
+        			return null;
+        		}));
+        	}
+
+        	for (int s = 0; s < searchThreads; s++) {
+        		stages.add(completion.submit(() -> {
+        			FileSearcher searcher = new FileSearcher();
+        			for (FileContent content = contents.take(); content != FileContent.END; content = contents.take())
+        				searcher.search(content, out, err);
+        			return null;
+        		}));
+        	}
+
+        	//stages are taken as they finish, so the first one to die is seen at once, whatever the others wait on
+        	for (int finished = 0; finished < stages.size(); finished++) {
+        		try {
+        			completion.take().get();
+        		} catch (ExecutionException e) {
+        			//a stage that dies would leave the others waiting on its queue, so stop them all
+        			errorCount.incrementAndGet();
+        			err.println("grep: " + e.getCause());
+        			for (Future<Void> stage : stages)
+        				stage.cancel(true);
+        			break;
+        		}
+        	}
+        } finally {
+        	executor.shutdownNow();
+        	executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    public long getFilesSearched() {
+        return filesSearched.get();
+    }
+
+    public long getBytesSearched() {
+        return bytesSearched.get();
+    }
+
+    public long getMatchCount() {
+        return matchCount.get();
+    }
+
+    public int getErrorCount() {
+        return errorCount.get();
+    }
+
+    /*
+     * Virtual threads when asked for and the JVM has them, found by reflection since this builds for Java 17.
+     * Otherwise a fixed pool with a thread for each stage thread.
+     */
+    private ExecutorService newExecutor(int threads) {
+        if (virtualThreads) {
+        	try {
+        		return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        	} catch (ReflectiveOperationException e) {
+        		//before Java 21, platform threads it is
+        	}
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private void discover(Path root, BlockingQueue<Path> paths, PrintStream err) {
+        try {
+        	Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+        		@Override
+        		public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        			if (attributes.isRegularFile())
+        				put(paths, file);
+        			return FileVisitResult.CONTINUE;
+        		}
+
+        		@Override
+        		public FileVisitResult visitFileFailed(Path file, IOException e) {
+        			error(err, file, e);
+        			return FileVisitResult.CONTINUE;
+        		}
+        	});
+        } catch (IOException e) {
+        	error(err, root, e);
+        }
+    }
+
+    /*
+     * Reads a small file into memory or maps a big one. Returns null for a binary file or one that cannot be read.
+     *
+     * A big file is mapped in segments of mapSegmentLength bytes, so it may be bigger than a buffer can be. Each
+     * segment but the last is mapped with MAX_BYTES_PER_CHAR - 1 extra bytes from the next one, so a character cut
+     * by the segment edge is decoded whole and the next segment is picked up after it. The search keeps the reach
+     * of characters from one chunk to the next, so this is the only overlap needed between segments.
+     */
+    private FileContent read(Path path, PrintStream err) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        	long size = channel.size();
+        	List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+        	if (size >= MAP_THRESHOLD) {
+        		for (long segmentStart = 0; segmentStart < size; segmentStart += mapSegmentLength) {
+        			long mappedSize = Math.min(size - segmentStart, (long) mapSegmentLength + MAX_BYTES_PER_CHAR - 1);
+        			segments.add(channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, mappedSize));
+        			if (segmentStart + mappedSize == size)
+        				break;
+        		}
+        	} else {
+        		ByteBuffer bytes = ByteBuffer.allocate((int) size);
+        		while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+        		}
+        		bytes.flip();
+        		segments.add(bytes);
+        	}
+
+        	if (!searchBinary) {
+        		ByteBuffer first = segments.get(0);
+        		for (int i = 0; i < Math.min(first.limit(), BINARY_CHECK_LENGTH); i++) {
+        			if (first.get(i) == 0)
+        				return null;
+        		}
+        	}
+        	return new FileContent(path, segments.toArray(new ByteBuffer[segments.size()]), size);
+        } catch (IOException e) {
+        	error(err, path, e);
+        	return null;
+        }
+    }
+
+    private void error(PrintStream err, Path path, IOException e) {
+        errorCount.incrementAndGet();
+        err.println("grep: " + path + ": " + e.getMessage());
+    }
+
+    /*
+     * Puts into a queue, waiting for room. An interrupt means the search is being shut down.
+     */
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+        	queue.put(item);
+        } catch (InterruptedException e) {
+        	Thread.currentThread().interrupt();
+        	throw new IllegalStateException("search interrupted", e);
+        }
+    }
+
+    /*
+     * A file read or mapped by the read stage, waiting to be searched.
+     */
+    private static final class FileContent {
+
+        static final Path END_PATH = Paths.get("");
+        static final FileContent END = new FileContent(END_PATH, new ByteBuffer[] { ByteBuffer.allocate(0) }, 0);
+
+        final Path path;
+        final ByteBuffer[] segments;    //the whole file for a small one, mapSegmentLength apart for a big one
+        final long size;
+
+        FileContent(Path path, ByteBuffer[] segments, long size) {
+        	this.path = path;
+        	this.segments = segments;
+        	this.size = size;
+        }
+    }
+
+    /*
+     * The state of one search thread, reused for every file it searches.
+     *
+     * A file is decoded CHUNK_LENGTH characters at a time into one CharBuffer, so a file of any size takes
+     * the same memory. The end of each chunk is kept for the next one: reach characters so a match across the
+     * chunk edge is found in the next chunk, plus one before them, which lets a whole-word search see the character
+     * before a word and lets a match that started in the previous chunk be told apart. The matches of a chunk
+     * are sorted by position, so lines are counted in one pass over the chunk.
+     */
+    private final class FileSearcher {
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        		.onMalformedInput(CodingErrorAction.REPLACE)
+        		.onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final int reach = matcher instanceof TokenMatcher ? maxPatternLength : Math.max(0, maxPatternLength - 1);
+        private final CharBuffer chars = CharBuffer.allocate(CHUNK_LENGTH + reach + 1);
+        private final MatchCollector collector = new MatchCollector();
+        private final StringBuilder results = new StringBuilder();
+        private long[] order = new long[16];          //start << 32 | end of each match to report, sorted
+
+        void search(FileContent content, PrintStream out, PrintStream err) {
+        	ByteBuffer[] segments = content.segments;
+        	int segment = 0;
+        	ByteBuffer bytes = segments[0];
+        	String path = content.path.toString();
+        	long fileMatches = 0;
+        	long base = 0;              //offset in the file of chars[0]
+        	long line = 1;
+        	int from = 0;               //first position of the chunk to search, 1 after the first chunk
+        	results.setLength(0);
+        	decoder.reset();
+        	chars.clear();
+
+        	while (true) {
+        		CoderResult result = decoder.decode(bytes, chars, segment == segments.length - 1);
+        		while (result.isUnderflow() && segment < segments.length - 1) {
+        			//go on in the next segment after the last byte decoded, which is in the overlap
+        			long decoded = segment * (long) mapSegmentLength + bytes.position();
+        			bytes = segments[++segment];
+        			bytes.position((int) (decoded - segment * (long) mapSegmentLength));
+        			result = decoder.decode(bytes, chars, segment == segments.length - 1);
+        		}
+        		boolean endOfInput = result.isUnderflow() && decoder.flush(chars).isUnderflow();
+        		chars.flip();
+
+        		int limit = chars.limit();
+        		int searchEnd = endOfInput ? limit : Math.max(from, limit - reach);
+
+        		collector.clear();
+        		if (matcher instanceof TokenMatcher) {
+        			((TokenMatcher) matcher).search(chars, from, searchEnd, collector);
+        		} else {
+        			matcher.search(chars, collector);
+        		}
+
+        		int n = sortMatches(from, searchEnd);
+        		int counted = from;         //newlines before this position are in line
+        		for (int k = 0; k < n; k++) {
+        			int start = (int) (order[k] >>> 32);
+        			for (; counted < start; counted++) {
+        				if (chars.get(counted) == '\n')
+        					line++;
+        			}
+        			int end = (int) order[k];
+        			if (spansLines(start, end))
+        				continue;
+        			fileMatches++;
+        			if (format != Format.COUNT)
+        				appendMatch(path, line, base + start, chars, start, end);
+        		}
+        		for (; counted < searchEnd; counted++) {
+        			if (chars.get(counted) == '\n')
+        				line++;
+        		}
+
+        		if (endOfInput)
+        			break;
+
+        		//keep the last character searched and the reach after it for the next chunk
+        		chars.position(searchEnd - 1);
+        		chars.compact();
+        		base += searchEnd - 1;
+        		from = 1;
+        	}
+
+        	if (format == Format.COUNT && fileMatches > 0)
+        		results.append(path).append(':').append(fileMatches).append('\n');
+        	if (results.length() > 0) {
+        		synchronized (out) {
+        			out.append(results);
+        			out.flush();
+        		}
+        	}
+
+        	filesSearched.incrementAndGet();
+        	bytesSearched.addAndGet(content.size);
+        	matchCount.addAndGet(fileMatches);
+        }
+
+        /*
+         * Fills order with the matches that start from from up to searchEnd, sorted by start then end.
+         * Both are positions in chars, so never negative, and sorting start << 32 | end as a long sorts by start then end
+         * without a comparator or a boxed index per match.
+         * @return the number of them
+         */
+        private int sortMatches(int from, int searchEnd) {
+        	int n = 0;
+        	if (order.length < collector.size())
+        		order = new long[collector.size()];
+        	for (int m = 0; m < collector.size(); m++) {
+        		int start = collector.getStart(m);
+        		if (start >= from && start < searchEnd)
+        			order[n++] = (long) start << 32 | collector.getEnd(m);
+        	}
+        	Arrays.sort(order, 0, n);
+        	return n;
+        }
+
+        /*
+         * Returns true if the match takes in a line break. Results are by line, so such a match is not reported.
+         * With --mismatches a line break can be one of the wrong characters.
+         */
+        private boolean spansLines(int start, int end) {
+        	for (int i = start; i < end; i++) {
+        		if (chars.get(i) == '\n')
+        			return true;
+        	}
+        	return false;
+        }
+
+        private void appendMatch(String path, long line, long offset, CharBuffer chars, int start, int end) {
+        	if (format == Format.JSON) {
+        		results.append("{\"file\":");
+        		Json.appendString(results, path);
+        		results.append(",\"line\":").append(line)
+        				.append(",\"offset\":").append(offset)
+        				.append(",\"length\":").append(end - start)
+        				.append(",\"match\":");
+        		Json.appendString(results, chars.subSequence(start, end));
+        		results.append("}\n");
+        	} else {
+        		results.append(path).append(':').append(line).append(':').append(offset).append(':')
+        				.append(chars, start, end).append('\n');
+        	}
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package textsearch;
+
+/*
+ * This is the enum of the hash code formulas a PatternIndex can use.
+ * A weaker hash makes more windows collide with a pattern's hash code, and every collision
+ * costs a character by character verification that fails.
+ */
+public enum HashScheme {
+
+    /*
+     * The original scheme: base 256 modulo a random 31-bit prime.
+     * With large dictionaries the 2^31 hash codes fill up and collisions are common.
+     */
+    PRIME_31,
+
+    /*
+     * Modulo the Mersenne prime 2^61-1 with a random base.
+     * The 122-bit products are reduced with Math.multiplyHigh, shifts and adds instead of a division,
+     * so it is both stronger and usually faster than PRIME_31.
+     */
+    MERSENNE_61,
+
+    /*
+     * Two independent hashes, each modulo its own random 31-bit prime with its own random base,
+     * packed into the high and low halves of one long. A false positive needs both to collide.
+     */
+    DOUBLE_31
+}
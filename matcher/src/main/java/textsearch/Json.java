@@ -0,0 +1,30 @@
+package textsearch;
+
+/*
+ * This is the class that writes JSON strings for Grep and SearchServer.
+ * The output is built in a StringBuilder by the callers, so only the escaping is shared here.
+ */
+final class Json {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Json() {
+    }
+
+    /*
+     * Appends s as a quoted JSON string, escaping quotes, backslashes and control characters.
+     */
+    static StringBuilder appendString(StringBuilder out, CharSequence s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+        	char c = s.charAt(i);
+        	if (c == '"' || c == '\\')
+        		out.append('\\').append(c);
+        	else if (c < 0x20)
+        		out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+        	else
+        		out.append(c);
+        }
+        return out.append('"');
+    }
+}
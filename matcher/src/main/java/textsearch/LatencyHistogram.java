@@ -0,0 +1,89 @@
+package textsearch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/*
+ * This is the class that records latencies and answers percentile queries, for SearchServer.
+ * Values are counted in log-linear buckets: every power of 2 is split in 16 buckets of equal width,
+ * so a percentile is off by at most 1/16 of its value, about 6%, while the whole range of a long
+ * fits in 1024 counters. Recording is one atomic increment, so many threads can record at once
+ * and nothing is kept per value.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /*
+     * Records one value, for example a latency in microseconds. Negative values are counted as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucket(value));
+        long previous = max.get();
+        while (value > previous && !max.compareAndSet(previous, value))
+        	previous = max.get();
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int b = 0; b < counts.length(); b++)
+        	count += counts.get(b);
+        return count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /*
+     * The value that percent percent of the recorded values are at or below, as the top of its bucket.
+     * Returns 0 when nothing was recorded.
+     */
+    public long getPercentile(double percent) {
+        if (percent < 0 || percent > 100)
+        	throw new IllegalArgumentException("percent must be from 0 to 100: " + percent);
+
+        long count = getCount();
+        if (count == 0)
+        	return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+        long seen = 0;
+        for (int b = 0; b < counts.length(); b++) {
+        	seen += counts.get(b);
+        	if (seen >= rank)
+        		return Math.min(bucketTop(b), max.get());
+        }
+        return max.get();
+    }
+
+    /*
+     * Values below 16 have a bucket each. Above that, the highest bit picks the power of 2
+     * and the next 4 bits pick the bucket within it.
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+        	return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /*
+     * The largest value that falls in the bucket.
+     */
+    static long bucketTop(int bucket) {
+        if (bucket < SUB_BUCKETS)
+        	return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long bottom = (1L << exponent) + (bucket % SUB_BUCKETS) * width;
+        return bottom + width - 1;
+    }
+}
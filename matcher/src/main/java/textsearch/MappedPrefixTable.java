@@ -0,0 +1,64 @@
+package textsearch;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+
+/*
+ * This is the class that probes a band's hash table where it lies in a memory mapped index file.
+ * The slots are read through views of the mapping, so loading the table copies nothing
+ * and every process that loads the same file shares one copy of it in the page cache.
+ * It probes the same slots in the same order as the PrefixHashTable that was written.
+ */
+final class MappedPrefixTable implements PrefixTable {
+
+    private final LongBuffer keys;
+    private final IntBuffer values;
+    private final int mask;
+    private final int size;
+
+    MappedPrefixTable(LongBuffer keys, IntBuffer values, int size) {
+        if (keys.capacity() != values.capacity() || Integer.bitCount(keys.capacity()) != 1)
+            throw new IllegalArgumentException("table capacity must be a power of 2: " + keys.capacity());
+
+        this.keys = keys;
+        this.values = values;
+        this.mask = keys.capacity() - 1;
+        this.size = size;
+    }
+
+    public int get(long key) {
+        int slot = PrefixHashTable.slot(key, mask);
+        long k;
+        while ((k = keys.get(slot)) != PrefixHashTable.EMPTY) {
+            if (k == key)
+                return values.get(slot);
+            slot = (slot + 1) & mask;
+        }
+        return PrefixHashTable.NOT_FOUND;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long keyAt(int slot) {
+        return keys.get(slot);
+    }
+
+    public int valueAt(int slot) {
+        return values.get(slot);
+    }
+
+    public PrefixHashTable copy() {
+        long[] keyArray = new long[capacity()];
+        int[] valueArray = new int[capacity()];
+        keys.get(0, keyArray);
+        values.get(0, valueArray);
+        return new PrefixHashTable(keyArray, valueArray, size);
+    }
+}
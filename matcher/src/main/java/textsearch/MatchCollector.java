@@ -0,0 +1,73 @@
+package textsearch;
+
+import java.util.Arrays;
+
+
+/*
+ * This is the sink that keeps every match in growable int arrays: pattern id, start and end.
+ * It records all matches, including ones that overlap or start at the same position, without boxing
+ * anything or copying the matched text. Call clear() to reuse the arrays for the next search.
+ * Positions must fit in an int, so it is meant for text held in memory.
+ */
+public class MatchCollector implements MatchSink {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] patternIds;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+
+    public MatchCollector() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MatchCollector(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        patternIds = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+    }
+
+    @Override
+    public boolean match(int patternId, long start, long end) {
+        if (end > Integer.MAX_VALUE)
+        	throw new IllegalStateException("match position does not fit in an int: " + end);
+
+        if (size == starts.length) {
+        	int capacity = size * 2;
+        	patternIds = Arrays.copyOf(patternIds, capacity);
+        	starts = Arrays.copyOf(starts, capacity);
+        	ends = Arrays.copyOf(ends, capacity);
+        }
+
+        patternIds[size] = patternId;
+        starts[size] = (int) start;
+        ends[size] = (int) end;
+        size++;
+        return true;
+    }
+
+    /*
+     * Forgets the matches but keeps the arrays, so the next search does not allocate until it finds more matches.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPatternId(int i) {
+        return patternIds[i];
+    }
+
+    public int getStart(int i) {
+        return starts[i];
+    }
+
+    public int getEnd(int i) {
+        return ends[i];
+    }
+}
@@ -0,0 +1,23 @@
+package textsearch;
+
+/*
+ * This is the sink for count-only searches. It keeps the number of matches and nothing else.
+ */
+public class MatchCounter implements MatchSink {
+
+    private long count;
+
+    @Override
+    public boolean match(int patternId, long start, long end) {
+        count++;
+        return true;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,16 @@
+package textsearch;
+
+/*
+ * This is the interface that receives the matches found by a search.
+ * Positions are absolute offsets into the searched input, so they are long
+ * even for inputs that are read in pieces. end is exclusive.
+ */
+public interface MatchSink {
+
+    /*
+     * Called once for every verified match.
+     * @param patternId id of the pattern that matched. RollingHash.getPattern(patternId) returns the pattern
+     * @return true to continue the search, false to stop it
+     */
+    boolean match(int patternId, long start, long end);
+}
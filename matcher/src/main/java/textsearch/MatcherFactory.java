@@ -0,0 +1,66 @@
+package textsearch;
+
+import java.util.Set;
+
+
+/*
+ * This is the class that picks the search engine for a pattern set.
+ * It looks at the number of patterns, their shortest and longest length and the size of their alphabet:
+ *
+ * - The Aho-Corasick table has at most (total pattern length + 1) * (alphabet size + 1) entries.
+ *   When that fits in the CPU cache it is the fastest engine for any pattern set.
+ * - When the shortest pattern is tiny, or the longest is many times longer than the shortest, the rolling hash
+ *   verifies at almost every position, so Aho-Corasick is used as long as its table fits the memory budget.
+ * - Otherwise, for large dictionaries of similar lengths, the rolling hash keeps a much smaller index.
+ */
+public final class MatcherFactory {
+
+    static final long CACHE_FRIENDLY_TABLE_SIZE = 1L << 20;     //table entries that fit in a few MB of cache
+    static final long MAX_TABLE_SIZE = 1L << 26;                //table entries allowed at most, 256 MB
+    static final int SHORT_PATTERN_LENGTH = 4;
+    static final int WIDE_LENGTH_RATIO = 4;
+
+    private MatcherFactory() {
+    }
+
+    /*
+     * Creates the engine that should be fastest for the pattern set.
+     */
+    public static MultiPatternMatcher create(Set<String> patternSet) {
+        return create(patternSet, false);
+    }
+
+    /*
+     * Creates the engine that should be fastest for the pattern set, optionally ignoring case.
+     */
+    public static MultiPatternMatcher create(Set<String> patternSet, boolean caseInsensitive) {
+        int minLength = Integer.MAX_VALUE;
+        int maxLength = 0;
+        long totalLength = 0;
+        boolean[] alphabet = new boolean[Character.MAX_VALUE + 1];
+        int alphabetSize = 0;
+
+        for (String pattern : patternSet) {
+        	if (pattern.length() == 0)
+        		continue;
+
+        	minLength = Math.min(minLength, pattern.length());
+        	maxLength = Math.max(maxLength, pattern.length());
+        	totalLength += pattern.length();
+        	for (int j = 0; j < pattern.length(); j++) {
+        		if (!alphabet[pattern.charAt(j)]) {
+        			alphabet[pattern.charAt(j)] = true;
+        			alphabetSize++;
+        		}
+        	}
+        }
+
+        long tableSize = (totalLength + 1) * (alphabetSize + 1);
+        boolean wideLengths = minLength < SHORT_PATTERN_LENGTH || maxLength > WIDE_LENGTH_RATIO * minLength;
+
+        if (tableSize <= CACHE_FRIENDLY_TABLE_SIZE || (wideLengths && tableSize <= MAX_TABLE_SIZE))
+        	return new AhoCorasick(patternSet, caseInsensitive);
+
+        return new RollingHash(patternSet, caseInsensitive);
+    }
+}
@@ -0,0 +1,73 @@
+package textsearch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/*
+ * This is the interface of a multiple pattern search engine.
+ * RollingHash and AhoCorasick implement it, and MatcherFactory picks one of them for a pattern set.
+ * Patterns are given ids from 0 to getPatternCount() - 1, which are what a MatchSink receives.
+ * An engine is not changed by a search, so one instance can be searched by many threads at once.
+ */
+public interface MultiPatternMatcher {
+
+    /*
+     * Searches the text and hands every match to the sink, overlapping matches included.
+     * The search stops early when the sink returns false.
+     */
+    void search(CharSequence text, MatchSink sink);
+
+    /*
+     * Returns the pattern for an id reported to a MatchSink.
+     */
+    String getPattern(int patternId);
+
+    int getPatternCount();
+
+    /*
+     * The search the GUI uses. It returns the location of each match and the text that matched there.
+     * When several patterns match at the same location, the longest one is kept.
+     * Every engine returns an empty map when nothing matches, never null.
+     */
+    default Map<Integer, String> multiplePatternMatchSearch(String text) {
+        Map<Integer, String> found = new HashMap<Integer, String>();
+
+        search(text, (patternId, start, end) -> {
+        	String previousMatch = found.get((int) start);
+        	if (previousMatch == null || previousMatch.length() < end - start)
+        		found.put((int) start, text.substring((int) start, (int) end));
+        	return true;
+        });
+
+        return found;
+    }
+
+    /*
+     * Finds all matches, including overlapping ones and several patterns at the same position,
+     * and adds them to the collector. Nothing is boxed and no matched text is copied.
+     * @return the collector, for chaining
+     */
+    default MatchCollector findAll(CharSequence text, MatchCollector collector) {
+        search(text, collector);
+        return collector;
+    }
+
+    /*
+     * Count-only search. It returns the number of matches, overlapping ones included, without keeping any of them.
+     */
+    default long countMatches(CharSequence text) {
+        MatchCounter counter = new MatchCounter();
+        search(text, counter);
+        return counter.getCount();
+    }
+
+    /*
+     * Stop-at-first-hit search. It returns as soon as any pattern is found.
+     */
+    default boolean containsAny(CharSequence text) {
+        FirstMatchSink firstMatch = new FirstMatchSink();
+        search(text, firstMatch);
+        return firstMatch.isFound();
+    }
+}
@@ -0,0 +1,48 @@
+package textsearch;
+
+import java.util.Arrays;
+
+
+/*
+ * This is the sink that counts the matches of each pattern and keeps nothing else.
+ * The counts are a long array indexed by pattern id, so a match is one array increment,
+ * with no positions, no boxing and no matched text. Call clear() to reuse it.
+ * A counter is for one thread. FrequencyAggregator gives each of its threads its own and adds them up at the end.
+ */
+public class PatternCounter implements MatchSink {
+
+    private long[] counts;
+
+    public PatternCounter(int patternCount) {
+        counts = new long[Math.max(1, patternCount)];
+    }
+
+    @Override
+    public boolean match(int patternId, long start, long end) {
+        //a PatternDictionary can get new patterns between searches, so an id can be past the end
+        if (patternId >= counts.length)
+        	counts = Arrays.copyOf(counts, Math.max(patternId + 1, counts.length * 2));
+        counts[patternId]++;
+        return true;
+    }
+
+    public long getCount(int patternId) {
+        return patternId < counts.length ? counts[patternId] : 0;
+    }
+
+    /*
+     * Adds these counts to totals, growing totals if needed.
+     * @return totals, or the bigger copy of it
+     */
+    long[] addTo(long[] totals) {
+        if (totals.length < counts.length)
+        	totals = Arrays.copyOf(totals, counts.length);
+        for (int patternId = 0; patternId < counts.length; patternId++)
+        	totals[patternId] += counts[patternId];
+        return totals;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+    }
+}
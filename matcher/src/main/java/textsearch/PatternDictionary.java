@@ -0,0 +1,410 @@
+package textsearch;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/*
+ * This is the class that holds a pattern set that changes while searches keep running.
+ * Every change builds a new generation of the PatternIndex from the previous one and then publishes it,
+ * so a search that already started keeps the generation it started with and never sees half a change.
+ * A RollingHash made with a dictionary takes the current generation at the start of each search.
+ *
+ * A new generation shares everything the change did not touch with the previous one:
+ * - the arenas of characters, bytes and offsets are shared by all generations. A new pattern is appended
+ *   after the patterns older generations can see, so they never notice it, and the arrays grow by doubling.
+ *   Adding a pattern copies only its own characters, and nothing is hashed again
+ * - only the hash tables of the bands that gain or lose a pattern are copied and changed
+ * - a pattern shorter than every band, or too long for the band below it, gets a band of its own,
+ *   so a new minimum length adds one band instead of rebuilding all of them
+ * - a band left with no patterns is dropped
+ *
+ * What a change still copies is the two candidate lists, one int per pattern each, since taking a pattern off
+ * a list changes the entry of the pattern before it and older generations still read that entry, and the
+ * hash tables of the bands it changes. So each call of update costs O(pattern count) ints whatever it changes;
+ * changing many patterns in one update pays that once instead of once per pattern.
+ * The first change of an index loaded from a file also copies its arenas onto the heap, once.
+ *
+ * Pattern ids never change. A removed pattern keeps its id and its characters, and gets the same id back
+ * if it is added again, so an id reported by an older generation still names the right pattern.
+ */
+public class PatternDictionary {
+
+    private volatile PatternIndex index;                                //the current generation
+    private final Map<String, Integer> patternIds = new HashMap<String, Integer>();   //every pattern ever added -> its id
+    private boolean[] live;                                             //pattern id -> is it in the dictionary now
+    private int liveCount;
+
+    //the arenas shared by the generations, see the class comment. They are null until the first change
+    private char[] chars;
+    private byte[] bytes;
+    private int[] offsets;
+    private int[] byteOffsets;
+
+    public PatternDictionary(Set<String> patternSet) {
+        this(patternSet, HashScheme.MERSENNE_61, false);
+    }
+
+    public PatternDictionary(Set<String> patternSet, HashScheme hashScheme, boolean caseInsensitive) {
+        this(new PatternIndex(patternSet, hashScheme, caseInsensitive));
+    }
+
+    /*
+     * Constructor that starts from an index that is already compiled, for example one loaded from a file.
+     */
+    public PatternDictionary(PatternIndex index) {
+        this.index = index;
+        live = new boolean[index.getPatternCount()];
+        for (int patternId = 0; patternId < index.getPatternCount(); patternId++) {
+        	if (index.getPatternLength(patternId) > 0 && inBand(index, patternId)) {
+        		patternIds.put(index.getPattern(patternId), patternId);
+        		live[patternId] = true;
+        		liveCount++;
+        	}
+        }
+    }
+
+    /*
+     * The current generation. It never changes, so it can be searched while the dictionary is being changed.
+     */
+    public PatternIndex getIndex() {
+        return index;
+    }
+
+    public synchronized boolean contains(String pattern) {
+        Integer patternId = patternIds.get(pattern);
+        return patternId != null && live[patternId];
+    }
+
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    /*
+     * Adds a pattern. @return false if it was already in the dictionary or is empty
+     */
+    public boolean addPattern(String pattern) {
+        return update(Collections.singleton(pattern), Collections.<String>emptySet()) > 0;
+    }
+
+    /*
+     * Removes a pattern. @return false if it was not in the dictionary
+     */
+    public boolean removePattern(String pattern) {
+        return update(Collections.<String>emptySet(), Collections.singleton(pattern)) > 0;
+    }
+
+    /*
+     * Adds and removes many patterns in one new generation, so searches see all of the changes or none of them.
+     * A pattern in both collections is removed.
+     * @return the number of patterns actually added or removed
+     */
+    public synchronized int update(Collection<String> added, Collection<String> removed) {
+        PatternIndex previous = index;
+
+        List<Integer> linked = new ArrayList<Integer>();
+        List<Integer> unlinked = new ArrayList<Integer>();
+        List<String> newPatterns = new ArrayList<String>();
+        int patternCount = previous.getPatternCount();
+
+        for (String pattern : removed) {
+        	Integer patternId = patternIds.get(pattern);
+        	if (patternId != null && live[patternId]) {
+        		live[patternId] = false;
+        		unlinked.add(patternId);
+        	}
+        }
+        for (String pattern : added) {
+        	if (pattern.length() == 0 || removed.contains(pattern))
+        		continue;
+
+        	Integer patternId = patternIds.get(pattern);
+        	if (patternId == null) {
+        		patternId = patternCount + newPatterns.size();
+        		patternIds.put(pattern, patternId);
+        		newPatterns.add(pattern);
+        	} else if (live[patternId]) {
+        		continue;
+        	}
+        	linked.add(patternId);
+        }
+
+        if (linked.isEmpty() && unlinked.isEmpty())
+        	return 0;
+
+        if (live.length < patternCount + newPatterns.size())
+        	live = Arrays.copyOf(live, grownLength(live.length, patternCount + newPatterns.size()));
+        for (int patternId : linked)
+        	live[patternId] = true;
+        liveCount += linked.size() - unlinked.size();
+
+        index = nextGeneration(previous, newPatterns, linked, unlinked);
+        return linked.size() + unlinked.size();
+    }
+
+    /*
+     * Builds the generation after previous: newPatterns get the ids after the last one, then the linked ids are
+     * put into their bands and the unlinked ids taken out.
+     */
+    private PatternIndex nextGeneration(PatternIndex previous, List<String> newPatterns, List<Integer> linked, List<Integer> unlinked) {
+        int oldCount = previous.getPatternCount();
+        int patternCount = oldCount + newPatterns.size();
+
+        if (offsets == null) {
+        	offsets = copyOf(previous.patternOffsets, previous.patternOffsets.capacity());
+        	byteOffsets = copyOf(previous.patternByteOffsets, previous.patternByteOffsets.capacity());
+        	chars = new char[previous.patternChars.capacity()];
+        	previous.patternChars.get(0, chars);
+        	bytes = new byte[previous.patternBytes.capacity()];
+        	previous.patternBytes.get(0, bytes);
+        }
+
+        //append the new patterns to the shared arenas, after everything the previous generation can see
+        if (offsets.length < patternCount + 1) {
+        	offsets = Arrays.copyOf(offsets, grownLength(offsets.length, patternCount + 1));
+        	byteOffsets = Arrays.copyOf(byteOffsets, offsets.length);
+        }
+        int[] patternOffsets = offsets;
+        int[] patternByteOffsets = byteOffsets;
+        byte[][] encodedPatterns = new byte[newPatterns.size()][];
+        for (int k = 0; k < newPatterns.size(); k++) {
+        	int patternId = oldCount + k;
+        	encodedPatterns[k] = newPatterns.get(k).getBytes(StandardCharsets.UTF_8);
+        	patternOffsets[patternId + 1] = Math.addExact(patternOffsets[patternId], newPatterns.get(k).length());
+        	patternByteOffsets[patternId + 1] = Math.addExact(patternByteOffsets[patternId], encodedPatterns[k].length);
+        }
+        if (chars.length < patternOffsets[patternCount])
+        	chars = Arrays.copyOf(chars, grownLength(chars.length, patternOffsets[patternCount]));
+        if (bytes.length < patternByteOffsets[patternCount])
+        	bytes = Arrays.copyOf(bytes, grownLength(bytes.length, patternByteOffsets[patternCount]));
+        char[] patternChars = chars;
+        byte[] patternBytes = bytes;
+        for (int k = 0; k < newPatterns.size(); k++) {
+        	int patternId = oldCount + k;
+        	newPatterns.get(k).getChars(0, newPatterns.get(k).length(), patternChars, patternOffsets[patternId]);
+        	for (int j = 0; j < encodedPatterns[k].length; j++)
+        		patternBytes[patternByteOffsets[patternId] + j] = (byte) previous.foldByte(encodedPatterns[k][j]);
+        }
+
+        int[] nextCandidate = copyOf(previous.nextCandidate, patternCount);
+        int[] nextByteCandidate = copyOf(previous.nextByteCandidate, patternCount);
+        BandEditor charBands = new BandEditor(previous, previous.bands, nextCandidate, patternChars, patternOffsets, null);
+        BandEditor byteBands = new BandEditor(previous, previous.byteBands, nextByteCandidate, null, patternByteOffsets, patternBytes);
+
+        for (int patternId : unlinked) {
+        	charBands.unlink(patternId);
+        	byteBands.unlink(patternId);
+        }
+        for (int patternId : linked) {
+        	charBands.link(patternId);
+        	byteBands.link(patternId);
+        }
+
+        //the length limits only need a pass over every pattern when a pattern at a limit was removed
+        boolean limitRemoved = false;
+        for (int patternId : unlinked) {
+        	int length = patternOffsets[patternId + 1] - patternOffsets[patternId];
+        	limitRemoved |= length == previous.minPatternLength || length == previous.maxPatternLength
+        			|| patternByteOffsets[patternId + 1] - patternByteOffsets[patternId] == previous.maxPatternByteLength;
+        }
+        int minPatternLength = limitRemoved ? Integer.MAX_VALUE : previous.minPatternLength;
+        int maxPatternLength = limitRemoved ? 0 : previous.maxPatternLength;
+        int maxPatternByteLength = limitRemoved ? 0 : previous.maxPatternByteLength;
+        List<Integer> changed = linked;
+        if (limitRemoved) {
+        	changed = new ArrayList<Integer>();
+        	for (int patternId = 0; patternId < patternCount; patternId++) {
+        		if (live[patternId])
+        			changed.add(patternId);
+        	}
+        }
+        for (int patternId : changed) {
+        	int length = patternOffsets[patternId + 1] - patternOffsets[patternId];
+        	minPatternLength = Math.min(minPatternLength, length);
+        	maxPatternLength = Math.max(maxPatternLength, length);
+        	maxPatternByteLength = Math.max(maxPatternByteLength, patternByteOffsets[patternId + 1] - patternByteOffsets[patternId]);
+        }
+
+        return new PatternIndex(previous.hashScheme, previous.caseInsensitive, previous.prefilter, previous.MOD, previous.MOD2,
+        		previous.polynomialBase, previous.polynomialBase2, minPatternLength, maxPatternLength, maxPatternByteLength,
+        		CharBuffer.wrap(patternChars, 0, patternOffsets[patternCount]).slice(), IntBuffer.wrap(patternOffsets, 0, patternCount + 1).slice(),
+        		ByteBuffer.wrap(patternBytes, 0, patternByteOffsets[patternCount]).slice(), IntBuffer.wrap(patternByteOffsets, 0, patternCount + 1).slice(),
+        		IntBuffer.wrap(nextCandidate), charBands.bands(), IntBuffer.wrap(nextByteCandidate), byteBands.bands());
+    }
+
+    /*
+     * The length to grow an array of length to so that it holds at least minLength: double it,
+     * so appending n items one change at a time copies O(n) of them in all.
+     */
+    private static int grownLength(int length, int minLength) {
+        return (int) Math.max(minLength, Math.min(2L * length, Integer.MAX_VALUE - 8));
+    }
+
+    /*
+     * The ints of the buffer in an array of newLength, which is at least as long as the buffer.
+     */
+    private static int[] copyOf(IntBuffer buffer, int newLength) {
+        int[] copy = new int[newLength];
+        buffer.get(0, copy, 0, buffer.capacity());
+        return copy;
+    }
+
+    /*
+     * Is the pattern on the candidate list of its band? Used to find the live patterns of an index.
+     */
+    private static boolean inBand(PatternIndex index, int patternId) {
+        int length = index.getPatternLength(patternId);
+        for (PatternIndex.LengthBand band : index.bands) {
+        	if (band.windowLength <= length && length < 2 * band.windowLength) {
+        		long patHash = index.hash(index.getPattern(patternId), 0, band.windowLength);
+        		for (int candidate = band.patternHashTable.get(patHash); candidate != PrefixHashTable.NOT_FOUND; candidate = index.nextCandidate.get(candidate)) {
+        			if (candidate == patternId)
+        				return true;
+        		}
+        	}
+        }
+        return false;
+    }
+
+    /*
+     * Changes the bands of one kind, chars or bytes, for a new generation.
+     * A band's table is copied the first time the generation changes it, and bands that are not changed are shared.
+     * A pattern belongs to the band with the longest window that is not longer than the pattern,
+     * the same rule the constructor of PatternIndex follows when it groups the patterns.
+     */
+    private static final class BandEditor {
+
+        private final PatternIndex previous;
+        private final List<PatternIndex.LengthBand> bands;
+        private final Map<PatternIndex.LengthBand, PrefixHashTable> copied = new IdentityHashMap<PatternIndex.LengthBand, PrefixHashTable>();   //changed band -> its own table
+        private final int[] next;
+        private final char[] chars;             //the char arena, or null for the byte bands
+        private final int[] offsets;
+        private final byte[] bytes;             //the byte arena, or null for the char bands
+
+        BandEditor(PatternIndex previous, PatternIndex.LengthBand[] bands, int[] next, char[] chars, int[] offsets, byte[] bytes) {
+        	this.previous = previous;
+        	this.bands = new ArrayList<PatternIndex.LengthBand>(Arrays.asList(bands));
+        	this.next = next;
+        	this.chars = chars;
+        	this.offsets = offsets;
+        	this.bytes = bytes;
+        }
+
+        /*
+         * Puts the pattern at the front of its candidate list, in a new band if no band can take it.
+         */
+        void link(int patternId) {
+        	int length = offsets[patternId + 1] - offsets[patternId];
+        	int b = findBand(length);
+        	if (b < 0 || length >= 2 * bands.get(b).windowLength) {
+        		b++;
+        		bands.add(b, newBand(length));
+        	}
+        	PatternIndex.LengthBand band = editable(b);
+        	PrefixHashTable table = copied.get(band);
+
+        	long patHash = hash(patternId, band.windowLength);
+        	next[patternId] = table.get(patHash);
+        	table.put(patHash, patternId);
+        }
+
+        /*
+         * Takes the pattern off its candidate list, and drops the band if it is left empty.
+         */
+        void unlink(int patternId) {
+        	int length = offsets[patternId + 1] - offsets[patternId];
+        	int b = findBand(length);
+        	if (b < 0)
+        		return;
+        	PatternIndex.LengthBand band = editable(b);
+        	PrefixHashTable table = copied.get(band);
+
+        	long patHash = hash(patternId, band.windowLength);
+        	int head = table.get(patHash);
+        	if (head == patternId) {
+        		if (next[patternId] == PrefixHashTable.NOT_FOUND)
+        			table.remove(patHash);
+        		else
+        			table.put(patHash, next[patternId]);
+        	} else {
+        		for (int candidate = head; candidate != PrefixHashTable.NOT_FOUND; candidate = next[candidate]) {
+        			if (next[candidate] == patternId) {
+        				next[candidate] = next[patternId];
+        				break;
+        			}
+        		}
+        	}
+        	next[patternId] = PrefixHashTable.NOT_FOUND;
+
+        	if (table.size() == 0)
+        		bands.remove(b);
+        }
+
+        /*
+         * The bands of the new generation. A changed band gets a new prefilter built from its table,
+         * since a Bloom filter cannot forget the keys that were removed.
+         */
+        PatternIndex.LengthBand[] bands() {
+        	for (int b = 0; b < bands.size(); b++) {
+        		PatternIndex.LengthBand band = bands.get(b);
+        		if (previous.prefilter && copied.containsKey(band))
+        			bands.set(b, new PatternIndex.LengthBand(band.windowLength, band.CommonConstant, band.patternHashTable,
+        					BlockedBloomFilter.of(band.patternHashTable)));
+        	}
+        	return bands.toArray(new PatternIndex.LengthBand[0]);
+        }
+
+        /*
+         * Index of the band with the longest window not longer than length, or -1 if every window is longer.
+         */
+        private int findBand(int length) {
+        	int b = bands.size() - 1;
+        	while (b >= 0 && bands.get(b).windowLength > length)
+        		b--;
+        	return b;
+        }
+
+        /*
+         * The band at b, replaced by a copy with its own table the first time this generation changes it.
+         */
+        private PatternIndex.LengthBand editable(int b) {
+        	PatternIndex.LengthBand band = bands.get(b);
+        	if (!copied.containsKey(band)) {
+        		PrefixHashTable table = band.patternHashTable.copy();
+        		band = new PatternIndex.LengthBand(band.windowLength, band.CommonConstant, table, null);
+        		bands.set(b, band);
+        		copied.put(band, table);
+        	}
+        	return band;
+        }
+
+        private PatternIndex.LengthBand newBand(int windowLength) {
+        	long CommonConstant = previous.hashScheme == HashScheme.DOUBLE_31 ? 1L << 32 | 1 : 1;
+        	for (int i = 1; i <= windowLength - 1; i++)
+        		CommonConstant = previous.append(CommonConstant, 0);
+
+        	PrefixHashTable table = new PrefixHashTable(1);
+        	PatternIndex.LengthBand band = new PatternIndex.LengthBand(windowLength, CommonConstant, table, null);
+        	copied.put(band, table);
+        	return band;
+        }
+
+        private long hash(int patternId, int windowLength) {
+        	if (bytes != null)
+        		return previous.hash(bytes, offsets[patternId], windowLength);
+        	return previous.hash(CharBuffer.wrap(chars, offsets[patternId], windowLength), 0, windowLength);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package textsearch;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/*
+ * This is the class that holds the result of a FrequencyAggregator: the number of matches of each pattern
+ * over a whole corpus, and the number of documents searched.
+ */
+public class PatternFrequencies {
+
+    private final MultiPatternMatcher matcher;
+    private final long[] counts;        //matches of each pattern, indexed by pattern id
+    private final long documentCount;
+
+    PatternFrequencies(MultiPatternMatcher matcher, long[] counts, long documentCount) {
+        this.matcher = matcher;
+        this.counts = counts;
+        this.documentCount = documentCount;
+    }
+
+    public long getCount(int patternId) {
+        return patternId < counts.length ? counts[patternId] : 0;
+    }
+
+    /*
+     * Matches of all patterns together.
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long count : counts)
+        	total += count;
+        return total;
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    /*
+     * Ids of the k patterns with the most matches, most first. Patterns with equal counts are in id order,
+     * and patterns that were never found are left out, so there can be fewer than k.
+     * It keeps a heap of the best k ids, so it takes O(n log k) for n patterns and does not sort them all.
+     */
+    public int[] topPatternIds(int k) {
+        if (k < 0)
+        	throw new IllegalArgumentException("k must not be negative: " + k);
+
+        //min-heap on (count, -id): the root is the weakest of the best k so far
+        int[] heap = new int[Math.min(k, counts.length)];
+        int size = 0;
+        for (int patternId = 0; patternId < counts.length; patternId++) {
+        	if (counts[patternId] == 0)
+        		continue;
+        	if (size < heap.length) {
+        		heap[size] = patternId;
+        		siftUp(heap, size++);
+        	} else if (size > 0 && before(patternId, heap[0])) {
+        		heap[0] = patternId;
+        		siftDown(heap, 0, size);
+        	}
+        }
+
+        //take the weakest off the root until the heap is empty, filling the result from the back
+        int[] top = new int[size];
+        for (int n = size; n > 0; n--) {
+        	top[n - 1] = heap[0];
+        	heap[0] = heap[n - 1];
+        	siftDown(heap, 0, n - 1);
+        }
+        return top;
+    }
+
+    /*
+     * The k patterns with the most matches and their counts, most first.
+     */
+    public List<Map.Entry<String, Long>> topK(int k) {
+        List<Map.Entry<String, Long>> top = new ArrayList<Map.Entry<String, Long>>();
+        for (int patternId : topPatternIds(k))
+        	top.add(new AbstractMap.SimpleImmutableEntry<String, Long>(matcher.getPattern(patternId), counts[patternId]));
+        return top;
+    }
+
+    /*
+     * True if pattern a ranks before pattern b: more matches, or as many and a smaller id.
+     */
+    private boolean before(int a, int b) {
+        return counts[a] > counts[b] || (counts[a] == counts[b] && a < b);
+    }
+
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+        	int parent = (i - 1) / 2;
+        	if (!before(heap[parent], heap[i]))
+        		break;
+        	swap(heap, i, parent);
+        	i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int i, int size) {
+        while (true) {
+        	int weakest = i;
+        	int left = 2 * i + 1;
+        	int right = left + 1;
+        	if (left < size && before(heap[weakest], heap[left]))
+        		weakest = left;
+        	if (right < size && before(heap[weakest], heap[right]))
+        		weakest = right;
+        	if (weakest == i)
+        		return;
+        	swap(heap, i, weakest);
+        	i = weakest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
+    }
+}
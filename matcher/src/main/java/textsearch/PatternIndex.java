@@ -0,0 +1,532 @@
+package textsearch;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+
+/*
+ * This is the class that holds the compiled form of a pattern set: the patterns, their hash tables
+ * and the modulus and base the hash codes were computed with.
+ * It is built once and never changed afterwards, so one index can be shared by any number of threads.
+ * The state of a single search lives in a SearchCursor.
+ * The arenas and candidate lists are buffers: they wrap arrays for an index compiled here,
+ * and are views of the mapping for an index loaded from a file, so a loaded index is searched in place.
+ */
+public class PatternIndex {
+
+    private final String[] patterns;          //patterns indexed by pattern id, shortest first. Made from patternChars when first asked for
+    final CharBuffer patternChars;            //characters of every pattern one after another, in pattern id order
+    final IntBuffer patternOffsets;           //start of each pattern in patternChars, plus the end of the last one
+    final IntBuffer nextCandidate;            //next pattern id with the same shortened hashCode in the same band. -1 ends the list
+    final LengthBand[] bands;                 //patterns grouped by length, each group has its own rolling window
+    final ByteBuffer patternBytes;            //UTF-8 encoding of every pattern one after another, for searching bytes
+    final IntBuffer patternByteOffsets;       //start of each pattern in patternBytes, plus the end of the last one
+    final IntBuffer nextByteCandidate;        //candidate lists of the byte bands
+    final LengthBand[] byteBands;             //patterns grouped by length in bytes
+    final HashScheme hashScheme;
+    final long MOD;          //a large prime. When mod by this MOD, we get a hashCode smaller enough to avoid memory overflow
+    final long MOD2;         //the second prime for DOUBLE_31
+    final long polynomialBase;
+    final long polynomialBase2;                 //the second base for DOUBLE_31
+    final boolean caseInsensitive;
+    final boolean prefilter;                    //every band checks a BlockedBloomFilter before its table
+    final char[] foldTable;                     //CaseFolding.CHAR_FOLD for case-insensitive search, null otherwise
+    final byte[] byteFoldTable;                 //CaseFolding.ASCII_FOLD for case-insensitive search, null otherwise
+
+    static final long MERSENNE_61_PRIME = (1L << 61) - 1;
+    final int minPatternLength;
+    final int maxPatternLength;
+    final int maxPatternByteLength;
+    private volatile FirstCharFilter firstCharFilter;   //made the first time a skip-scan asks for it
+
+    /*
+     * A group of patterns whose lengths are close to each other.
+     * Every pattern in the band is hashed up to the length of the band's shortest pattern,
+     * and the text is scanned with a window of that length.
+     * This way a single short pattern does not shrink the window used for the long patterns.
+     */
+    static final class LengthBand {
+        final int windowLength;
+        final long CommonConstant;                    // R^(M-1) % Q for this band's window
+        final PrefixTable patternHashTable;           //hashCode of shortened pattern -> first candidate pattern id
+        final BlockedBloomFilter prefilter;           //the table's keys, checked before the table. null when there is no prefilter
+
+        LengthBand(int windowLength, long CommonConstant, PrefixTable patternHashTable, BlockedBloomFilter prefilter) {
+        	this.windowLength = windowLength;
+        	this.CommonConstant = CommonConstant;
+        	this.patternHashTable = patternHashTable;
+        	this.prefilter = prefilter;
+        }
+
+        /*
+         * Returns the first candidate pattern id for the hash code of a window, or NOT_FOUND.
+         * The prefilter turns most windows away from one cache line before the table is probed.
+         */
+        int lookup(long textHash) {
+        	if (prefilter != null && !prefilter.mightContain(textHash))
+        		return PrefixHashTable.NOT_FOUND;
+        	return patternHashTable.get(textHash);
+        }
+    }
+
+    /*
+     * Constructor
+     * It takes set of patterns passed in from GUI
+     * it sorts the patterns by length and groups them into length bands.
+     * A band starts at its shortest pattern and takes every pattern shorter than twice that length.
+     * For each band it creates a hash table that stored the hash code of each shortened pattern.
+     * The table maps the hash code to the id of a pattern, which is its index in the patterns array.
+     * Patterns that share a shortened hash code are chained through nextCandidate, so none of them is lost.
+     * The same is done for the UTF-8 bytes of the patterns, for searching files without decoding them.
+     * It uses the MERSENNE_61 hash scheme.
+     */
+    public PatternIndex(Set<String> patternSet) {
+        this(patternSet, HashScheme.MERSENNE_61);
+    }
+
+    /*
+     * Constructor with a choice of hash scheme. The modulus and base are picked at random for each index,
+     * so no fixed text can be made to collide with the patterns.
+     */
+    public PatternIndex(Set<String> patternSet, HashScheme hashScheme) {
+        this(patternSet, hashScheme, false);
+    }
+
+    /*
+     * Constructor with a choice of hash scheme and of case-insensitive search.
+     * A case-insensitive index folds every character through a lookup table as it hashes and compares it,
+     * for the patterns here and for the text during the search, so the text does not need to be lowercased first.
+     */
+    public PatternIndex(Set<String> patternSet, HashScheme hashScheme, boolean caseInsensitive) {
+        this(patternSet, hashScheme, caseInsensitive, false);
+    }
+
+    /*
+     * Constructor with a choice of a prefilter. With a prefilter every band gets a BlockedBloomFilter of its table's keys,
+     * which is worth it when the tables are too big for the CPU cache, from a few hundred thousand patterns up.
+     */
+    public PatternIndex(Set<String> patternSet, HashScheme hashScheme, boolean caseInsensitive, boolean prefilter) {
+
+        this.hashScheme = hashScheme;
+        this.caseInsensitive = caseInsensitive;
+        this.prefilter = prefilter;
+        foldTable = caseInsensitive ? CaseFolding.CHAR_FOLD : null;
+        byteFoldTable = caseInsensitive ? CaseFolding.ASCII_FOLD : null;
+        Random random = new Random();
+
+        switch (hashScheme) {
+        case MERSENNE_61:
+        	MOD = MERSENNE_61_PRIME;
+        	MOD2 = 0;
+        	polynomialBase = (1L << 16) + (random.nextLong() & (1L << 60) - 1);
+        	polynomialBase2 = 0;
+        	break;
+        case DOUBLE_31:
+        	MOD = randomPrime(random);
+        	long secondPrime;
+        	do {
+        		secondPrime = randomPrime(random);
+        	} while (secondPrime == MOD);
+        	MOD2 = secondPrime;
+        	polynomialBase = 256 + random.nextInt((int) MOD - 256);
+        	polynomialBase2 = 256 + random.nextInt((int) MOD2 - 256);
+        	break;
+        default:
+        	MOD = randomPrime(random);
+        	MOD2 = 0;
+        	polynomialBase = 256;
+        	polynomialBase2 = 0;
+        }
+
+        List<String> sortedPatterns = new ArrayList<String>();
+        for (String pattern : patternSet) {
+        	if (pattern.length() > 0)
+        		sortedPatterns.add(pattern);
+        }
+        Collections.sort(sortedPatterns, Comparator.comparingInt(String::length));
+
+        patterns = sortedPatterns.toArray(new String[0]);
+        int[] nextCandidate = new int[patterns.length];
+
+        //lay the patterns and their UTF-8 bytes out one after another
+        int[] patternOffsets = new int[patterns.length + 1];
+        int[] patternByteOffsets = new int[patterns.length + 1];
+        byte[][] encodedPatterns = new byte[patterns.length][];
+        for (int patternId = 0; patternId < patterns.length; patternId++) {
+        	encodedPatterns[patternId] = patterns[patternId].getBytes(StandardCharsets.UTF_8);
+        	patternOffsets[patternId + 1] = Math.addExact(patternOffsets[patternId], patterns[patternId].length());
+        	patternByteOffsets[patternId + 1] = Math.addExact(patternByteOffsets[patternId], encodedPatterns[patternId].length);
+        }
+        char[] patternChars = new char[patternOffsets[patterns.length]];
+        byte[] patternBytes = new byte[patternByteOffsets[patterns.length]];
+        for (int patternId = 0; patternId < patterns.length; patternId++) {
+        	patterns[patternId].getChars(0, patterns[patternId].length(), patternChars, patternOffsets[patternId]);
+        	System.arraycopy(encodedPatterns[patternId], 0, patternBytes, patternByteOffsets[patternId], encodedPatterns[patternId].length);
+        }
+        if (caseInsensitive) {
+        	//store the bytes folded, so only the text's bytes need folding during the search
+        	for (int j = 0; j < patternBytes.length; j++)
+        		patternBytes[j] = byteFoldTable[patternBytes[j] & 0xFF];
+        }
+        this.patternChars = CharBuffer.wrap(patternChars);
+        this.patternOffsets = IntBuffer.wrap(patternOffsets);
+        this.patternBytes = ByteBuffer.wrap(patternBytes);
+        this.patternByteOffsets = IntBuffer.wrap(patternByteOffsets);
+
+        //find shortest pattern length
+        minPatternLength = findShortestPatternLength(patternSet);
+        maxPatternLength = patterns.length > 0 ? patterns[patterns.length - 1].length() : 0;
+
+        int[] charOrder = new int[patterns.length];
+        int[] charLengths = new int[patterns.length];
+        for (int patternId = 0; patternId < patterns.length; patternId++) {
+        	charOrder[patternId] = patternId;
+        	charLengths[patternId] = patterns[patternId].length();
+        }
+        bands = buildLengthBands(charOrder, charLengths, nextCandidate, false);
+        this.nextCandidate = IntBuffer.wrap(nextCandidate);
+
+        /*
+         * The byte mode hashes the UTF-8 encoding of the patterns, whose lengths can differ from the char lengths,
+         * so it gets its own bands and candidate lists.
+         */
+        Integer[] byteOrder = new Integer[patterns.length];
+        int[] byteLengths = new int[patterns.length];
+        int maxByteLength = 0;
+        for (int patternId = 0; patternId < patterns.length; patternId++) {
+        	byteOrder[patternId] = patternId;
+        	byteLengths[patternId] = getPatternByteLength(patternId);
+        	maxByteLength = Math.max(maxByteLength, byteLengths[patternId]);
+        }
+        maxPatternByteLength = maxByteLength;
+        Arrays.sort(byteOrder, Comparator.comparingInt(patternId -> byteLengths[patternId]));
+        int[] nextByteCandidate = new int[patterns.length];
+        byteBands = buildLengthBands(Arrays.stream(byteOrder).mapToInt(Integer::intValue).toArray(), byteLengths, nextByteCandidate, true);
+        this.nextByteCandidate = IntBuffer.wrap(nextByteCandidate);
+
+    }
+
+    /*
+     * Constructor for an index read back from a compiled index file by PatternIndexFile,
+     * or made by a PatternDictionary from the previous generation.
+     * Everything is taken as it is, so nothing is hashed or sorted again.
+     */
+    PatternIndex(HashScheme hashScheme, boolean caseInsensitive, boolean prefilter, long MOD, long MOD2, long polynomialBase, long polynomialBase2,
+    		int minPatternLength, int maxPatternLength, int maxPatternByteLength,
+    		CharBuffer patternChars, IntBuffer patternOffsets, ByteBuffer patternBytes, IntBuffer patternByteOffsets,
+    		IntBuffer nextCandidate, LengthBand[] bands, IntBuffer nextByteCandidate, LengthBand[] byteBands) {
+        this.hashScheme = hashScheme;
+        this.caseInsensitive = caseInsensitive;
+        this.prefilter = prefilter;
+        foldTable = caseInsensitive ? CaseFolding.CHAR_FOLD : null;
+        byteFoldTable = caseInsensitive ? CaseFolding.ASCII_FOLD : null;
+        this.MOD = MOD;
+        this.MOD2 = MOD2;
+        this.polynomialBase = polynomialBase;
+        this.polynomialBase2 = polynomialBase2;
+        this.minPatternLength = minPatternLength;
+        this.maxPatternLength = maxPatternLength;
+        this.maxPatternByteLength = maxPatternByteLength;
+        this.patternChars = patternChars;
+        this.patternOffsets = patternOffsets;
+        this.patternBytes = patternBytes;
+        this.patternByteOffsets = patternByteOffsets;
+        this.nextCandidate = nextCandidate;
+        this.bands = bands;
+        this.nextByteCandidate = nextByteCandidate;
+        this.byteBands = byteBands;
+        patterns = new String[patternOffsets.capacity() - 1];
+    }
+
+    /*
+     * Writes the compiled index to a file, see PatternIndexFile.
+     * PatternIndex.load reads it back with the same modulus and base, so it finds exactly the same matches.
+     */
+    public void save(Path file) throws IOException {
+    	PatternIndexFile.write(this, file);
+    }
+
+    /*
+     * Reads an index written by save. The file is memory mapped and searched where it is:
+     * the tables and arenas are read through views of the mapping, so nothing is copied or hashed,
+     * loading takes the same short time however many patterns the file holds,
+     * and every process that loads the file shares the one copy in the page cache.
+     */
+    public static PatternIndex load(Path file) throws IOException {
+    	return PatternIndexFile.read(file, false);
+    }
+
+    /*
+     * Reads an index written by save and copies its tables and arenas into arrays on the heap,
+     * which is only worth it when the file will not stay in the page cache, like on a network drive.
+     */
+    public static PatternIndex load(Path file, boolean copyToHeap) throws IOException {
+    	return PatternIndexFile.read(file, copyToHeap);
+    }
+
+    /*
+     * Groups the patterns into length bands.
+     * A band starts at its shortest pattern and takes every pattern shorter than twice that length.
+     * @param order pattern ids sorted by length
+     * @param lengths length of each pattern in the units that are hashed, chars or bytes
+     * @param next the candidate lists to fill in
+     * @param byteBands hash the UTF-8 bytes of the patterns instead of the chars
+     */
+    private LengthBand[] buildLengthBands(int[] order, int[] lengths, int[] next, boolean byteBands) {
+        List<LengthBand> bandList = new ArrayList<LengthBand>();
+        int bandStart = 0;
+        while (bandStart < order.length) {
+        	int bandEnd = bandStart;
+        	while (bandEnd < order.length && lengths[order[bandEnd]] < 2 * lengths[order[bandStart]])
+        		bandEnd++;
+
+        	bandList.add(buildLengthBand(order, bandStart, bandEnd, lengths[order[bandStart]], next, byteBands));
+        	bandStart = bandEnd;
+        }
+        return bandList.toArray(new LengthBand[0]);
+    }
+
+    /*
+     * Builds the band for the patterns order[bandStart] up to order[bandEnd - 1].
+     * loop thru each pattern in the band and build hashCode from each.
+     * each hashCode is added to the band's hash table for later matching
+     */
+    private LengthBand buildLengthBand(int[] order, int bandStart, int bandEnd, int windowLength, int[] next, boolean byteBand) {
+    	PrefixHashTable patternHashTable = new PrefixHashTable(bandEnd - bandStart);
+
+    	for (int k = bandStart; k < bandEnd; k++) {
+    		int patternId = order[k];
+
+	        //only calculate the patten's hashcode up to the length of shortest pattern in the band
+	        long patHash;
+	        if (byteBand)
+	        	patHash = hash(patternBytes, patternByteOffsets.get(patternId), windowLength);
+	        else
+	        	patHash = hash(patterns[patternId], 0, windowLength);
+
+	        //put the pattern in front of any other candidate with the same hashCode
+	        next[patternId] = patternHashTable.get(patHash);
+	        patternHashTable.put(patHash, patternId);
+    	}
+
+        /*
+         * This is the value in the hashCode formula that every calculation needs.
+         * So we calculate it here once and store it for later use.
+         * An dynamic programming concept - memorization
+         */
+    	long CommonConstant = hashScheme == HashScheme.DOUBLE_31 ? 1L << 32 | 1 : 1;
+        for (int i = 1; i <= windowLength - 1; i++)
+        	CommonConstant = append(CommonConstant, 0);
+
+        return new LengthBand(windowLength, CommonConstant, patternHashTable, prefilter ? BlockedBloomFilter.of(patternHashTable) : null);
+    }
+
+    /*
+     * This is the helper method that calculates the hash code in polynomial format
+     * of the pattenLength characters starting at start.
+     */
+    long hash(CharSequence key, int start, int pattenLength) {
+        long h = 0;
+        for (int j = start; j < start + pattenLength; j++) {
+            h = append(h, fold(key.charAt(j)));
+        }
+        return h;
+    }
+
+    /*
+     * The same hash code over bytes. A byte is taken as unsigned.
+     */
+    long hash(byte[] key, int start, int pattenLength) {
+        long h = 0;
+        for (int j = start; j < start + pattenLength; j++) {
+            h = append(h, key[j] & 0xFF);
+        }
+        return h;
+    }
+
+    long hash(ByteBuffer key, int start, int pattenLength) {
+        long h = 0;
+        for (int j = start; j < start + pattenLength; j++) {
+            h = append(h, foldByte(key.get(j)));
+        }
+        return h;
+    }
+
+    /*
+     * The character as it is hashed and compared: folded for a case-insensitive index, unchanged otherwise.
+     */
+    int fold(char c) {
+        return foldTable == null ? c : foldTable[c];
+    }
+
+    /*
+     * The byte as it is hashed and compared, as an unsigned value.
+     */
+    int foldByte(byte b) {
+        return byteFoldTable == null ? b & 0xFF : byteFoldTable[b & 0xFF] & 0xFF;
+    }
+
+    /*
+     * Adds a character to the end of the hashed string: h * base + c, reduced by the scheme's modulus.
+     */
+    long append(long h, int c) {
+        switch (hashScheme) {
+        case MERSENNE_61:
+        	return reduce61(multiplyMod61(h, polynomialBase) + c);
+        case DOUBLE_31:
+        	long high = ((h >>> 32) * polynomialBase + c) % MOD;
+        	long low = ((h & 0xFFFFFFFFL) * polynomialBase2 + c) % MOD2;
+        	return high << 32 | low;
+        default:
+        	return (polynomialBase * h + c) % MOD;
+        }
+    }
+
+    /*
+     * This is the hash code rolling. It removes the outgoing character from the front of the window
+     * and appends the incoming character at the end. New hash is derived from previous hash.
+     * @param CommonConstant R^(M-1) % Q of the window length
+     */
+    long roll(long h, int outgoing, int incoming, long CommonConstant) {
+        switch (hashScheme) {
+        case MERSENNE_61:
+        	h = reduce61(h + MERSENNE_61_PRIME - multiplyMod61(CommonConstant, outgoing));
+        	return reduce61(multiplyMod61(h, polynomialBase) + incoming);
+        case DOUBLE_31:
+        	long high = ((h >>> 32) + MOD - (CommonConstant >>> 32) * outgoing % MOD) % MOD;
+        	high = (high * polynomialBase + incoming) % MOD;
+        	long low = ((h & 0xFFFFFFFFL) + MOD2 - (CommonConstant & 0xFFFFFFFFL) * outgoing % MOD2) % MOD2;
+        	low = (low * polynomialBase2 + incoming) % MOD2;
+        	return high << 32 | low;
+        default:
+        	h = (h + MOD - CommonConstant * outgoing % MOD) % MOD;  //subtract A to get BCb
+        	//   old_hash    - base *  - A
+        	return (h * polynomialBase + incoming) % MOD;           //multiple by base + D part
+        	//      above  * base           + D
+        }
+    }
+
+    /*
+     * a * b mod 2^61-1 for a and b below 2^61.
+     * The 122-bit product is split into the bits below 2^61 and the bits above, and since 2^61 = 1 mod 2^61-1
+     * the two parts are just added.
+     */
+    private static long multiplyMod61(long a, long b) {
+        long low = a * b;
+        long high = Math.multiplyHigh(a, b);
+        return reduce61((low & MERSENNE_61_PRIME) + (low >>> 61 | high << 3));
+    }
+
+    /*
+     * x mod 2^61-1 for x below 2^62.
+     */
+    private static long reduce61(long x) {
+        x = (x & MERSENNE_61_PRIME) + (x >>> 61);
+        return x >= MERSENNE_61_PRIME ? x - MERSENNE_61_PRIME : x;
+    }
+
+    /*
+     * Returns the pattern for an id reported to a MatchSink.
+     */
+    public String getPattern(int patternId) {
+    	String pattern = patterns[patternId];
+    	if (pattern == null) {
+    		//a loaded index makes each String the first time it is asked for. Two threads may both make it, which is harmless
+    		char[] chars = new char[getPatternLength(patternId)];
+    		patternChars.get(patternOffsets.get(patternId), chars);
+    		pattern = new String(chars);
+    		patterns[patternId] = pattern;
+    	}
+    	return pattern;
+    }
+
+    /*
+     * The set of characters the patterns start with, for a skip-scan. Two threads may both build it, which is harmless.
+     */
+    FirstCharFilter getFirstCharFilter() {
+    	FirstCharFilter filter = firstCharFilter;
+    	if (filter == null) {
+    		filter = FirstCharFilter.create(this);
+    		firstCharFilter = filter;
+    	}
+    	return filter;
+    }
+
+    int getPatternLength(int patternId) {
+    	return patternOffsets.get(patternId + 1) - patternOffsets.get(patternId);
+    }
+
+    int getPatternByteLength(int patternId) {
+    	return patternByteOffsets.get(patternId + 1) - patternByteOffsets.get(patternId);
+    }
+
+    public int getPatternCount() {
+    	return patterns.length;
+    }
+
+    public int getMinPatternLength() {
+    	return minPatternLength;
+    }
+
+    public int getMaxPatternLength() {
+    	return maxPatternLength;
+    }
+
+    public int getMaxPatternByteLength() {
+    	return maxPatternByteLength;
+    }
+
+    public HashScheme getHashScheme() {
+    	return hashScheme;
+    }
+
+    public boolean isCaseInsensitive() {
+    	return caseInsensitive;
+    }
+
+    public boolean hasPrefilter() {
+    	return prefilter;
+    }
+
+    /*
+     * A helper method that generates a random 31-bit prime.
+     * The hashCode can be very large and may cause overflow.
+     * So we mod(%) the hashCode by this large prime number
+     * to get it smaller.
+     * BigInteger.probablePrime checks primality, the chance of a composite is below 2^-100.
+     */
+    static long randomPrime(Random random) {
+        BigInteger prime = BigInteger.probablePrime(31, random);
+        return prime.longValue();
+    }
+
+    /*
+     * A helper method that figures out the shortest string length
+     * of all patterns.
+     */
+    private int findShortestPatternLength(Set<String> patternSet) {
+    	int shortestLength = Integer.MAX_VALUE;
+
+    	Iterator<String> it = patternSet.iterator();
+
+        while(it.hasNext()) {
+        	String pattern = it.next();
+        	if ( pattern.length() > 0 && pattern.length() < shortestLength)
+        		shortestLength = pattern.length();
+        }
+    	return shortestLength;
+    }
+}
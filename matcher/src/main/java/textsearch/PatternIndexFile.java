@@ -0,0 +1,363 @@
+package textsearch;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/*
+ * This is the class that writes a compiled PatternIndex to a file and reads it back.
+ * Compiling a dictionary of hundreds of thousands of patterns hashes and sorts every one of them,
+ * so a dictionary that does not change can be compiled once and loaded at every start instead.
+ *
+ * The file is a header followed by flat arrays, each starting at a multiple of 8 bytes:
+ *
+ *   header     magic "TSPI" and format version, big-endian, then little-endian:
+ *              hash scheme, case-insensitive flag, prefilter flag, MOD, MOD2, polynomialBase, polynomialBase2,
+ *              pattern count, min and max pattern length, max pattern byte length,
+ *              number of chars and bytes in the pattern arenas, number of char and byte bands,
+ *              then for each char band and each byte band: window length, table size, table capacity,
+ *              prefilter length in longs, CommonConstant
+ *   patterns   patternOffsets, patternChars, patternByteOffsets, patternBytes
+ *   candidates nextCandidate, nextByteCandidate
+ *   bands      for each char band then each byte band: the table's keys, its values and the prefilter's bits
+ *
+ * Reading maps the file and hands out read-only views of the arrays, so the index is searched where it lies:
+ * nothing is copied onto the heap, and every process that loads the file shares one copy in the page cache.
+ * The arrays are little-endian because that is the byte order of the machines this runs on,
+ * so reading a slot through a view is a plain load. Copying the arrays onto the heap is an option of read.
+ * The file is mapped in regions of up to MAX_REGION_LENGTH bytes that each hold whole arrays,
+ * so only a single array is limited to what one mapping can hold, not the whole file.
+ */
+final class PatternIndexFile {
+
+    static final int MAGIC = 0x54535049;       //"TSPI"
+    static final int VERSION = 3;
+    static final int MAX_REGION_LENGTH = Integer.MAX_VALUE;
+    private static final int BAND_HEADER_LENGTH = 24;
+
+    private PatternIndexFile() {
+    }
+
+    static void write(PatternIndex index, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        		StandardOpenOption.TRUNCATE_EXISTING)) {
+        	Output out = new Output(channel);
+        	out.putMagic();
+        	out.putInt(index.hashScheme.ordinal());
+        	out.putInt(index.caseInsensitive ? 1 : 0);
+        	out.putInt(index.prefilter ? 1 : 0);
+        	out.putLong(index.MOD);
+        	out.putLong(index.MOD2);
+        	out.putLong(index.polynomialBase);
+        	out.putLong(index.polynomialBase2);
+        	out.putInt(index.getPatternCount());
+        	out.putInt(index.minPatternLength);
+        	out.putInt(index.maxPatternLength);
+        	out.putInt(index.maxPatternByteLength);
+        	out.putInt(index.patternChars.capacity());
+        	out.putInt(index.patternBytes.capacity());
+        	out.putInt(index.bands.length);
+        	out.putInt(index.byteBands.length);
+        	out.align();
+        	for (PatternIndex.LengthBand band : index.bands)
+        		writeBandHeader(out, band);
+        	for (PatternIndex.LengthBand band : index.byteBands)
+        		writeBandHeader(out, band);
+
+        	out.putInts(index.patternOffsets);
+        	out.putChars(index.patternChars);
+        	out.putInts(index.patternByteOffsets);
+        	out.putBytes(index.patternBytes);
+        	out.putInts(index.nextCandidate);
+        	out.putInts(index.nextByteCandidate);
+
+        	for (PatternIndex.LengthBand band : index.bands)
+        		writeBand(out, band);
+        	for (PatternIndex.LengthBand band : index.byteBands)
+        		writeBand(out, band);
+        	out.flush();
+        }
+    }
+
+    static PatternIndex read(Path file, boolean copyToHeap) throws IOException {
+        return read(file, copyToHeap, MAX_REGION_LENGTH);
+    }
+
+    /*
+     * Reads the index, mapping the file in regions of at most maxRegionLength bytes, or one array if that is longer.
+     * Package-private so the tests can switch regions without writing a file of gigabytes.
+     */
+    static PatternIndex read(Path file, boolean copyToHeap, int maxRegionLength) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        	Input in = new Input(channel, file, maxRegionLength);
+        	ByteBuffer header = in.section(8);
+        	if (header.order(ByteOrder.BIG_ENDIAN).getInt() != MAGIC)
+        		throw new IOException("not a pattern index file: " + file);
+        	int version = header.getInt();
+        	if (version != VERSION)
+        		throw new IOException("pattern index file version " + version + " is not supported, expected " + VERSION + ": " + file);
+
+        	try {
+        		header = in.section(76);
+        		int scheme = header.getInt();
+        		if (scheme < 0 || scheme >= HashScheme.values().length)
+        			throw new IOException("unknown hash scheme " + scheme + ": " + file);
+        		HashScheme hashScheme = HashScheme.values()[scheme];
+        		boolean caseInsensitive = header.getInt() != 0;
+        		boolean prefilter = header.getInt() != 0;
+        		long MOD = header.getLong();
+        		long MOD2 = header.getLong();
+        		long polynomialBase = header.getLong();
+        		long polynomialBase2 = header.getLong();
+        		int patternCount = header.getInt();
+        		int minPatternLength = header.getInt();
+        		int maxPatternLength = header.getInt();
+        		int maxPatternByteLength = header.getInt();
+        		int charCount = header.getInt();
+        		int byteCount = header.getInt();
+        		int bandCount = header.getInt();
+        		int byteBandCount = header.getInt();
+        		ByteBuffer bandHeaders = in.section((long) (bandCount + byteBandCount) * BAND_HEADER_LENGTH);
+
+        		IntBuffer patternOffsets = in.ints(patternCount + 1L);
+        		CharBuffer patternChars = in.chars(charCount);
+        		IntBuffer patternByteOffsets = in.ints(patternCount + 1L);
+        		ByteBuffer patternBytes = in.bytes(byteCount);
+        		IntBuffer nextCandidate = in.ints(patternCount);
+        		IntBuffer nextByteCandidate = in.ints(patternCount);
+
+        		PatternIndex.LengthBand[] bands = new PatternIndex.LengthBand[bandCount];
+        		for (int b = 0; b < bandCount; b++)
+        			bands[b] = readBand(in, bandHeaders, copyToHeap);
+        		PatternIndex.LengthBand[] byteBands = new PatternIndex.LengthBand[byteBandCount];
+        		for (int b = 0; b < byteBandCount; b++)
+        			byteBands[b] = readBand(in, bandHeaders, copyToHeap);
+
+        		if (copyToHeap) {
+        			patternOffsets = copy(patternOffsets);
+        			patternChars = copy(patternChars);
+        			patternByteOffsets = copy(patternByteOffsets);
+        			patternBytes = copy(patternBytes);
+        			nextCandidate = copy(nextCandidate);
+        			nextByteCandidate = copy(nextByteCandidate);
+        		}
+        		return new PatternIndex(hashScheme, caseInsensitive, prefilter, MOD, MOD2, polynomialBase, polynomialBase2,
+        				minPatternLength, maxPatternLength, maxPatternByteLength,
+        				patternChars, patternOffsets, patternBytes, patternByteOffsets,
+        				nextCandidate, bands, nextByteCandidate, byteBands);
+        	} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+        		throw new IOException("pattern index file is damaged: " + file, e);
+        	}
+        }
+    }
+
+    private static void writeBandHeader(Output out, PatternIndex.LengthBand band) throws IOException {
+        out.putInt(band.windowLength);
+        out.putInt(band.patternHashTable.size());
+        out.putInt(band.patternHashTable.capacity());
+        out.putInt(band.prefilter != null ? band.prefilter.words().capacity() : 0);
+        out.putLong(band.CommonConstant);
+    }
+
+    private static void writeBand(Output out, PatternIndex.LengthBand band) throws IOException {
+        PrefixTable table = band.patternHashTable;
+        for (int slot = 0; slot < table.capacity(); slot++)
+        	out.putLong(table.keyAt(slot));
+        out.align();
+        for (int slot = 0; slot < table.capacity(); slot++)
+        	out.putInt(table.valueAt(slot));
+        out.align();
+        if (band.prefilter != null)
+        	out.putLongs(band.prefilter.words());
+    }
+
+    private static PatternIndex.LengthBand readBand(Input in, ByteBuffer bandHeaders, boolean copyToHeap) throws IOException {
+        int windowLength = bandHeaders.getInt();
+        int size = bandHeaders.getInt();
+        int capacity = bandHeaders.getInt();
+        int filterLength = bandHeaders.getInt();
+        long CommonConstant = bandHeaders.getLong();
+
+        PrefixTable table = new MappedPrefixTable(in.longs(capacity), in.ints(capacity), size);
+        LongBuffer filterWords = in.longs(filterLength);
+        if (copyToHeap) {
+        	table = table.copy();
+        	filterWords = copy(filterWords);
+        }
+        BlockedBloomFilter prefilter = filterLength > 0 ? new BlockedBloomFilter(filterWords) : null;
+
+        return new PatternIndex.LengthBand(windowLength, CommonConstant, table, prefilter);
+    }
+
+    private static IntBuffer copy(IntBuffer view) {
+        int[] array = new int[view.capacity()];
+        view.get(0, array);
+        return IntBuffer.wrap(array);
+    }
+
+    private static LongBuffer copy(LongBuffer view) {
+        long[] array = new long[view.capacity()];
+        view.get(0, array);
+        return LongBuffer.wrap(array);
+    }
+
+    private static CharBuffer copy(CharBuffer view) {
+        char[] array = new char[view.capacity()];
+        view.get(0, array);
+        return CharBuffer.wrap(array);
+    }
+
+    private static ByteBuffer copy(ByteBuffer view) {
+        byte[] array = new byte[view.capacity()];
+        view.get(0, array);
+        return ByteBuffer.wrap(array);
+    }
+
+    /*
+     * Writes little-endian values to the file through a buffer, and starts every array at a multiple of 8 bytes,
+     * so the views the reader makes of it are aligned.
+     */
+    private static final class Output {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        Output(FileChannel channel) {
+        	this.channel = channel;
+        }
+
+        void putMagic() throws IOException {
+        	ensure(8);
+        	buffer.order(ByteOrder.BIG_ENDIAN).putInt(MAGIC).putInt(VERSION).order(ByteOrder.LITTLE_ENDIAN);
+        	position += 8;
+        }
+
+        void putInt(int value) throws IOException {
+        	ensure(4);
+        	buffer.putInt(value);
+        	position += 4;
+        }
+
+        void putLong(long value) throws IOException {
+        	ensure(8);
+        	buffer.putLong(value);
+        	position += 8;
+        }
+
+        void putInts(IntBuffer values) throws IOException {
+        	for (int i = 0; i < values.capacity(); i++)
+        		putInt(values.get(i));
+        	align();
+        }
+
+        void putLongs(LongBuffer values) throws IOException {
+        	for (int i = 0; i < values.capacity(); i++)
+        		putLong(values.get(i));
+        	align();
+        }
+
+        void putChars(CharBuffer values) throws IOException {
+        	for (int i = 0; i < values.capacity(); i++) {
+        		ensure(2);
+        		buffer.putChar(values.get(i));
+        		position += 2;
+        	}
+        	align();
+        }
+
+        void putBytes(ByteBuffer values) throws IOException {
+        	for (int i = 0; i < values.capacity(); i++) {
+        		ensure(1);
+        		buffer.put(values.get(i));
+        		position++;
+        	}
+        	align();
+        }
+
+        void align() throws IOException {
+        	while (position % 8 != 0) {
+        		ensure(1);
+        		buffer.put((byte) 0);
+        		position++;
+        	}
+        }
+
+        void flush() throws IOException {
+        	buffer.flip();
+        	while (buffer.hasRemaining())
+        		channel.write(buffer);
+        	buffer.clear();
+        }
+
+        private void ensure(int length) throws IOException {
+        	if (buffer.remaining() < length)
+        		flush();
+        }
+    }
+
+    /*
+     * Maps the file one region at a time, in the order the arrays were written, and hands out little-endian
+     * views of the arrays. A region holds as many whole arrays as fit in maxRegionLength bytes.
+     */
+    private static final class Input {
+
+        private final FileChannel channel;
+        private final Path file;
+        private final long fileSize;
+        private final int maxRegionLength;
+        private ByteBuffer region;
+        private long regionStart;
+        private long position;
+
+        Input(FileChannel channel, Path file, int maxRegionLength) throws IOException {
+        	this.channel = channel;
+        	this.file = file;
+        	this.fileSize = channel.size();
+        	this.maxRegionLength = maxRegionLength;
+        }
+
+        IntBuffer ints(long count) throws IOException {
+        	return section(count * 4).asIntBuffer();
+        }
+
+        LongBuffer longs(long count) throws IOException {
+        	return section(count * 8).asLongBuffer();
+        }
+
+        CharBuffer chars(long count) throws IOException {
+        	return section(count * 2).asCharBuffer();
+        }
+
+        ByteBuffer bytes(long count) throws IOException {
+        	return section(count);
+        }
+
+        /*
+         * The next length bytes of the file, after which the position moves on to the next multiple of 8.
+         */
+        ByteBuffer section(long length) throws IOException {
+        	if (length < 0 || position + length > fileSize)
+        		throw new IOException("pattern index file is truncated or damaged: " + file);
+        	if (length > Integer.MAX_VALUE)
+        		throw new IOException("pattern index file has an array of " + length + " bytes, more than one mapping can hold: " + file);
+
+        	if (region == null || position + length > regionStart + region.capacity()) {
+        		regionStart = position;
+        		long regionLength = Math.max(length, Math.min(fileSize - position, maxRegionLength));
+        		region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionLength);
+        	}
+        	ByteBuffer section = region.slice((int) (position - regionStart), (int) length).order(ByteOrder.LITTLE_ENDIAN);
+        	position = Math.min(fileSize, (position + length + 7) & ~7L);
+        	return section;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package textsearch;
+
+import java.util.Arrays;
+
+
+/*
+ * This is the class that stores the hash code of each shortened pattern and the id of the pattern it came from.
+ * It is an open-addressed table of primitive long keys and int values, so a lookup during the
+ * rolling scan does not create a String or box a Long like HashMap<String,String> did.
+ * Keys are hash codes mod a prime, so they are never negative. -1 marks an empty slot.
+ */
+public class PrefixHashTable implements PrefixTable {
+
+    static final long EMPTY = -1L;
+    public static final int NOT_FOUND = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /*
+     * Constructor
+     * It takes the number of keys expected and sizes the table so that it is at most half full.
+     */
+    public PrefixHashTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    /*
+     * Constructor for a table read back from a compiled index file.
+     * The arrays are used as they are, so loading does no hashing.
+     */
+    PrefixHashTable(long[] keys, int[] values, int size) {
+        if (keys.length != values.length || Integer.bitCount(keys.length) != 1)
+            throw new IllegalArgumentException("table capacity must be a power of 2: " + keys.length);
+
+        this.keys = keys;
+        this.values = values;
+        this.mask = keys.length - 1;
+        this.size = size;
+    }
+
+    /*
+     * Stores the value for the key. An existing value for the same key is replaced.
+     */
+    public void put(long key, int value) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+
+        if (size * 2 > keys.length)
+            grow();
+    }
+
+    /*
+     * Returns the value stored for the key, or NOT_FOUND.
+     * This is the lookup done at every text position, so it only reads the two arrays.
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        long k;
+        while ((k = keys[slot]) != EMPTY) {
+            if (k == key)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /*
+     * Removes the key. The entries after it in the same run of slots are shifted back
+     * where they would otherwise no longer be found, so no tombstones are left behind.
+     */
+    public void remove(long key) {
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY)
+                return;
+            slot = (slot + 1) & mask;
+        }
+
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            //the entry can fill the hole if the hole is between its home slot and where it sits now
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+     * A copy of the table that can be changed without changing this one.
+     */
+    public PrefixHashTable copy() {
+        return new PrefixHashTable(keys.clone(), values.clone(), size);
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private int slot(long key) {
+        return slot(key, mask);
+    }
+
+    /*
+     * Spread the bits of the hash code before masking, since consecutive hash codes
+     * would otherwise sit in consecutive slots. A MappedPrefixTable probes the same slots.
+     */
+    static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY)
+                put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package textsearch;
+
+
+/*
+ * This is the interface a length band looks its hash codes up through.
+ * PrefixHashTable keeps the slots in arrays on the heap and can be changed.
+ * MappedPrefixTable reads them in place from a compiled index file and cannot.
+ */
+interface PrefixTable {
+
+    /*
+     * Returns the pattern id stored for the key, or PrefixHashTable.NOT_FOUND.
+     */
+    int get(long key);
+
+    int size();
+
+    /*
+     * The number of slots, a power of 2.
+     */
+    int capacity();
+
+    /*
+     * The key in a slot, PrefixHashTable.EMPTY if the slot is free, and the value stored with it.
+     * For writing the table to a file and for building a prefilter of its keys.
+     */
+    long keyAt(int slot);
+
+    int valueAt(int slot);
+
+    /*
+     * A copy of the table on the heap that can be changed without changing this one.
+     */
+    PrefixHashTable copy();
+}
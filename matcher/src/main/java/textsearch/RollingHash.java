@@ -0,0 +1,422 @@
+package textsearch;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/*
+ * This is the class that represents the Rolling Hash Object that does multiple various length pattern search
+ * on a given text.
+ * The bigO is O(m+n+p) n - length of text to be searched. m - length of shortest pattern. p - number of matches
+ * Patterns are grouped into length bands and the text is scanned once per band, so it is O(b*n) for b bands.
+ * The compiled patterns live in a PatternIndex and the state of each search in a SearchCursor,
+ * so a RollingHash can be shared by many threads.
+ */
+public class RollingHash implements MultiPatternMatcher {
+
+    private final PatternIndex index;               //compiled patterns, shared by every search. null when searching a dictionary
+    private final PatternDictionary dictionary;     //patterns that can change between searches, null for a fixed index
+    private final SearchMetrics metrics;            //counters every search adds to, null when metrics are off
+    private final boolean skipScan;                 //character searches skip windows no pattern can start, see SearchCursor
+    private volatile Map<Integer, String> results;  //results of the most recent multiplePatternMatchSearch, for the GUI
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 28;    //bytes of a file mapped at a time by searchFile
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;      //characters searched by one task in parallelPatternMatchSearch
+
+    /*
+     * Constructor
+     * It takes set of patterns passed in from GUI
+     * and compiles them into a PatternIndex.
+     */
+	public RollingHash(Set<String> patternSet) {
+        this(new PatternIndex(patternSet));
+    }
+
+    /*
+     * Constructor with a choice of hash scheme, see HashScheme.
+     */
+    public RollingHash(Set<String> patternSet, HashScheme hashScheme) {
+        this(new PatternIndex(patternSet, hashScheme));
+    }
+
+    /*
+     * Constructor with a choice of case-insensitive search.
+     * Characters are folded as they are hashed and compared, so the text is searched as it is, without lowercasing a copy.
+     */
+    public RollingHash(Set<String> patternSet, boolean caseInsensitive) {
+        this(patternSet, HashScheme.MERSENNE_61, caseInsensitive);
+    }
+
+    /*
+     * Constructor with a choice of hash scheme and of case-insensitive search.
+     */
+    public RollingHash(Set<String> patternSet, HashScheme hashScheme, boolean caseInsensitive) {
+        this(new PatternIndex(patternSet, hashScheme, caseInsensitive));
+    }
+
+    /*
+     * Constructor that shares an index that is already compiled.
+     * The index is never changed by a search and every search keeps its own state in a SearchCursor,
+     * so one RollingHash or one PatternIndex can be used by many threads at once.
+     */
+    public RollingHash(PatternIndex index) {
+        this(index, null);
+    }
+
+    /*
+     * Constructor with metrics turned on. Every search adds its counters to metrics when it finishes.
+     * Several searchers can share one SearchMetrics.
+     */
+    public RollingHash(PatternIndex index, SearchMetrics metrics) {
+        this(index, metrics, false);
+    }
+
+    /*
+     * Constructor with a choice of skip-scan. With skipScan the character searches only hash the windows that
+     * start with the first character of some pattern, found in bulk with the Vector API when the JVM has the
+     * jdk.incubator.vector module (--add-modules jdk.incubator.vector) and one character at a time when it does not.
+     * It is faster when matches can start at few places in the text, and gives the same results either way.
+     */
+    public RollingHash(PatternIndex index, SearchMetrics metrics, boolean skipScan) {
+        this.index = index;
+        this.dictionary = null;
+        this.metrics = metrics;
+        this.skipScan = skipScan;
+    }
+
+    /*
+     * Constructor for a pattern set that changes while this searcher is in use, see PatternDictionary.
+     * Every search takes the dictionary's current generation when it starts and keeps it to the end,
+     * so it never sees a pattern half added or removed.
+     */
+    public RollingHash(PatternDictionary dictionary) {
+        this(dictionary, null);
+    }
+
+    public RollingHash(PatternDictionary dictionary, SearchMetrics metrics) {
+        this.index = null;
+        this.dictionary = dictionary;
+        this.metrics = metrics;
+        this.skipScan = false;
+    }
+
+    /*
+     * The index a search should use: the fixed one, or the dictionary's current generation.
+     */
+    private PatternIndex snapshot() {
+        return dictionary != null ? dictionary.getIndex() : index;
+    }
+
+
+    /*
+     * This is the main method that does the multiple pattern match
+     * It scans the text once for every length band.
+     * @param text text to be searched for matching patterns
+     * @return the hash table that stored the search result. it has the index location of the match and the pattern that matched at that
+     * location. When several patterns match at the same location, the longest one is kept.
+     */
+    @Override
+    public Map<Integer, String> multiplePatternMatchSearch(String text) {
+        PatternIndex index = snapshot();
+        if (text.length() < index.minPatternLength) return new HashMap<Integer, String>();
+
+    	//create a hashmap to store the matched locations
+    	Map<Integer, String> found = new HashMap<Integer, String>();
+
+        new SearchCursor(index, (patternId, start, end) -> {
+        	String previousMatch = found.get((int) start);
+        	if (previousMatch == null || previousMatch.length() < end - start)
+        		found.put((int) start, text.substring((int) start, (int) end));
+        	return true;
+        }, metrics, skipScan).search(text, 0, text.length());
+
+        results = found;
+        return found;
+    }
+
+    /*
+     * Searches the text and hands every match to the sink.
+     * Matches are reported band by band, so they are in offset order within a band only.
+     */
+    @Override
+    public void search(CharSequence text, MatchSink sink) {
+        search(text, 0, text.length(), sink);
+    }
+
+    /*
+     * Searches only the windows that start from position from up to, but not including, position to.
+     * A match that starts in the range is still found when it ends after to.
+     */
+    public void search(CharSequence text, int from, int to, MatchSink sink) {
+        new SearchCursor(snapshot(), sink, metrics, skipScan).search(text, from, to);
+    }
+
+    /*
+     * Parallel version of multiplePatternMatchSearch.
+     * It runs on the common ForkJoinPool with chunks of DEFAULT_CHUNK_SIZE characters.
+     */
+    public Map<Integer, String> parallelPatternMatchSearch(String text) {
+        return parallelPatternMatchSearch(text, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /*
+     * Parallel version of multiplePatternMatchSearch.
+     * The text is split into chunks of about chunkSize window starts. Each chunk reads maxPatternLength - 1 characters
+     * past its end, so the chunks overlap by that much and a match across a chunk edge is still verified.
+     * Each chunk hashes its first window with the hash helper and then rolls with the band's CommonConstant,
+     * so chunks do not depend on each other and run as separate fork/join tasks.
+     * A chunk only reports matches that start inside it, so merging the chunks in order gives every match once,
+     * in offset order.
+     * @return the matches sorted by location, with the longest pattern kept where several match at one location
+     */
+    public Map<Integer, String> parallelPatternMatchSearch(String text, int chunkSize, ForkJoinPool pool) {
+        if (chunkSize < 1)
+        	throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+
+        PatternIndex index = snapshot();
+        if (text.length() < index.minPatternLength) return new TreeMap<Integer, String>();
+
+        Map<Integer, String> found = pool.invoke(new ChunkSearchTask(index, metrics, skipScan, text, 0, text.length(), chunkSize));
+        results = found;
+        return found;
+    }
+
+    /*
+     * Fork/join task that searches the window starts from position from up to position to.
+     * Ranges bigger than chunkSize are split in half, the halves run in parallel and the right half's
+     * matches are appended to the left half's. Every chunk searches the same index.
+     * It is static and takes the metrics and skip-scan setting, so a task does not hold on to the searcher.
+     */
+    private static class ChunkSearchTask extends RecursiveTask<TreeMap<Integer, String>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PatternIndex index;
+        private final SearchMetrics metrics;
+        private final boolean skipScan;
+        private final String text;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        ChunkSearchTask(PatternIndex index, SearchMetrics metrics, boolean skipScan, String text, int from, int to, int chunkSize) {
+        	this.index = index;
+        	this.metrics = metrics;
+        	this.skipScan = skipScan;
+        	this.text = text;
+        	this.from = from;
+        	this.to = to;
+        	this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected TreeMap<Integer, String> compute() {
+        	if (to - from <= chunkSize) {
+        		TreeMap<Integer, String> found = new TreeMap<Integer, String>();
+        		new SearchCursor(index, (patternId, start, end) -> {
+        			String previousMatch = found.get((int) start);
+        			if (previousMatch == null || previousMatch.length() < end - start)
+        				found.put((int) start, text.substring((int) start, (int) end));
+        			return true;
+        		}, metrics, skipScan).search(text, from, to);
+        		return found;
+        	}
+
+        	int middle = from + (to - from) / 2;
+        	ChunkSearchTask left = new ChunkSearchTask(index, metrics, skipScan, text, from, middle, chunkSize);
+        	left.fork();
+        	TreeMap<Integer, String> rightFound = new ChunkSearchTask(index, metrics, skipScan, text, middle, to, chunkSize).compute();
+        	TreeMap<Integer, String> found = left.join();
+        	found.putAll(rightFound);
+        	return found;
+        }
+    }
+
+    /*
+     * Streaming search over a Reader. See SearchCursor.search(Reader, int).
+     * Memory use depends on bufferSize and the longest pattern, not on the size of the input.
+     * @return the number of characters searched
+     */
+    public long search(Reader reader, int bufferSize, MatchSink sink) throws IOException {
+        return new SearchCursor(snapshot(), sink, metrics, skipScan).search(reader, bufferSize);
+    }
+
+    /*
+     * Streaming search over a channel, for example a FileChannel or a socket.
+     * The bytes are decoded with the charset as they are read. Malformed input is replaced, not reported.
+     * @return the number of characters searched
+     */
+    public long search(ReadableByteChannel channel, Charset charset, int bufferSize, MatchSink sink) throws IOException {
+        CharsetDecoder decoder = charset.newDecoder()
+        		.onMalformedInput(CodingErrorAction.REPLACE)
+        		.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        return search(Channels.newReader(channel, decoder, bufferSize), bufferSize, sink);
+    }
+
+    /*
+     * File search that works on bytes instead of chars.
+     * The file is memory mapped in segments of DEFAULT_SEGMENT_SIZE bytes and the hash is rolled over the bytes directly,
+     * so nothing is decoded or copied into the heap and files bigger than 2 GB can be searched.
+     * Patterns are matched against their UTF-8 encoding, byte for byte. Positions are byte offsets into the file.
+     * @return the number of bytes searched
+     */
+    public long searchFile(Path file, MatchSink sink) throws IOException {
+        return searchFile(file, DEFAULT_SEGMENT_SIZE, sink);
+    }
+
+    /*
+     * File search with a given segment size. See SearchCursor.search(FileChannel, int).
+     */
+    public long searchFile(Path file, int segmentSize, MatchSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        	return new SearchCursor(snapshot(), sink, metrics, skipScan).search(channel, segmentSize);
+        }
+    }
+
+    /*
+     * Test driver.
+     * It pre-loads text to be searched and patterns and run the search and match
+     * method.
+     * It prints out the match results. The matched patterns are displayed as
+     * CAPITAL characters in the original text so we can tell what have matched.
+     */
+    public static void main(String[] args) {
+
+
+        /*********** multiple pattern match test *******************/
+
+    	//prepare some text to be searched
+        String sb = new StringBuilder()
+        .append("It was the best of times, it was the worst of times,\n")
+        .append("it was the age of wisdom, it was the age of foolishness,\n")
+        .append("it was the epoch of belief, it was the epoch of incredulity,\n")
+        .append("it was the season of Light, it was the season of Darkness,\n")
+        .append("it was the spring of hope, it was the winter of despair,\n")
+        .append("we had everything before us, we had nothing before us")
+        .toString();
+
+        String text = sb.toString().toLowerCase();
+
+        //prepare some patterns to be searched by
+        String pat1 = "times";
+        String pat2 = "wisdom";
+        String pat3 = "belief";
+        String pat4 = "before";
+        String pat5 = "the";
+        String pat6 = "age";
+
+        //put patterns into a HashSet
+        Set<String> patternSet = new HashSet<String>();
+        patternSet.add(pat1);
+        patternSet.add(pat2);
+        patternSet.add(pat3);
+        patternSet.add(pat4);
+        patternSet.add(pat5);
+        patternSet.add(pat6);
+
+
+        //call constructor to create a match searcher
+
+        RollingHash multiplePatternSearch = new RollingHash(patternSet);
+
+        //call search on the entire text
+
+        Map<Integer, String> results =  multiplePatternSearch.multiplePatternMatchSearch(text);
+
+
+        //print out match result to check if everything works
+
+        printMatchResult(results, text);
+
+    }
+
+    public static void printMatchResult(Map<Integer, String> results, String originalText) {
+
+    	//check matching results
+        Iterator it = results.entrySet().iterator();
+        while (it.hasNext()) {
+        	Map.Entry<Integer, String> result = (Entry<Integer, String>) it.next();
+        	System.out.println("match " + " " + result.getKey() +  " " + result.getValue());
+        }
+
+        System.out.println("\n--------- Dislay match results -------------\n");
+
+       //loop thru entire string and compare with the result has table to find the matched words' location and turn the font to red
+        int jump = 0;
+        for (int i = 0; i < originalText.length(); i++) {
+        	String matchedWord = results.get(i);
+        	if ( matchedWord != null) {
+        		System.out.print(matchedWord.toUpperCase());
+        		jump = matchedWord.length();
+        	} else {
+        		if (jump > 0 )
+        		   i = i + jump - 1;
+
+        		System.out.print(originalText.charAt(i));
+        		jump = 0;
+        	}
+        }
+    }
+
+
+    /*
+     * This method is used by the GUI to display match results
+     *
+     */
+
+
+
+     public Map<Integer, String> getResults() {
+ 		return results;
+ 	}
+
+     /*
+      * Returns the compiled index, so it can be shared with other searchers.
+      * For a dictionary it is the current generation.
+      */
+     public PatternIndex getIndex() {
+    	 return snapshot();
+     }
+
+     /*
+      * Returns the metrics this searcher records to, or null when metrics are off.
+      */
+     public SearchMetrics getMetrics() {
+    	 return metrics;
+     }
+
+     /*
+      * Returns the pattern for an id reported to a MatchSink.
+      */
+     @Override
+     public String getPattern(int patternId) {
+    	 return snapshot().getPattern(patternId);
+     }
+
+     @Override
+     public int getPatternCount() {
+    	 return snapshot().getPatternCount();
+     }
+
+     public int getMaxPatternLength() {
+    	 return snapshot().getMaxPatternLength();
+     }
+}
@@ -0,0 +1,523 @@
+package textsearch;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+
+/*
+ * This is the class that holds the state of one search against a PatternIndex:
+ * the rolling hash of each band, the position in the input and the sink the matches go to.
+ * It is cheap to create, so every search makes its own and any number of searches can run
+ * against the same index at once without locking. A cursor itself is used by one thread only.
+ */
+public class SearchCursor {
+
+    private static final long NO_HASH = -1;     //no window has been hashed yet
+    private static final long STOPPED = -2;     //the sink asked to stop the search
+    private static final int SKIP_BUFFER_SIZE = 4096;   //characters copied at a time for a vectorized skip over a String
+
+    private final PatternIndex index;
+    private final MatchSink sink;
+    private final SearchMetrics metrics;        //null when metrics are off
+    private final FirstCharFilter firstCharFilter;  //null when the search does not skip-scan
+    private final char[] patternArray;          //the array behind index.patternChars, null when the index is searched in its file
+
+    //counters of the current search. They are plain fields and only added to the metrics when the search finishes
+    private long windowsScanned;
+    private long hashHits;
+    private long doubleCheckCount;
+    private long matchCount;
+    private long verificationNanos;
+    private long startNanos;
+
+    //views used to compare candidates with the patterns in place, without copying either
+    private char[] textArray;                   //the array behind the text being scanned, null if it has none
+    private int textArrayOffset;                //index in textArray of the text's first character
+    private ByteBuffer segmentView;             //a view of the mapped segment being scanned
+    private ByteBuffer patternView;             //a view of index.patternBytes
+    private char[] skipBuffer;                  //chars of a text with no array of its own, copied for the vectorized skip
+    private int skipBufferStart;                //text position of skipBuffer[0]
+    private int skipBufferEnd;                  //text position after the last char copied, skipBufferStart when nothing is
+
+    public SearchCursor(PatternIndex index, MatchSink sink) {
+        this(index, sink, null);
+    }
+
+    /*
+     * Constructor for a search that records its counters into metrics. metrics can be null.
+     */
+    public SearchCursor(PatternIndex index, MatchSink sink, SearchMetrics metrics) {
+        this(index, sink, metrics, false);
+    }
+
+    /*
+     * Constructor with a choice of skip-scan for the character searches.
+     * A skip-scan only hashes and probes the windows that start with a character some pattern starts with,
+     * and jumps over the rest, see FirstCharFilter. It pays off when few positions of the text can start a match,
+     * like scanning logs for a few keywords, and costs a little when most can.
+     */
+    public SearchCursor(PatternIndex index, MatchSink sink, SearchMetrics metrics, boolean skipScan) {
+        this.index = index;
+        this.sink = sink;
+        this.metrics = metrics;
+        this.firstCharFilter = skipScan ? index.getFirstCharFilter() : null;
+        this.patternArray = index.patternChars.hasArray() ? index.patternChars.array() : null;
+    }
+
+    /*
+     * Searches the windows that start from position from up to, but not including, position to.
+     * A match that starts in the range is still found when it ends after to.
+     * Matches are reported band by band, so they are in offset order within a band only.
+     * @return false if the sink asked to stop
+     */
+    public boolean search(CharSequence text, int from, int to) {
+        SearchEvent event = start();
+        boolean completed = scanText(text, from, to);
+        finish(event, Math.max(0, Math.min(to, text.length()) - from), 0);
+        return completed;
+    }
+
+    private boolean scanText(CharSequence text, int from, int to) {
+        int textLength = text.length();
+        useText(text);
+
+        for (PatternIndex.LengthBand band : index.bands) {
+        	int endStart = Math.min(to, textLength - band.windowLength + 1);
+        	if (scanLengthBand(text, from, endStart, textLength, 0, band, NO_HASH) == STOPPED)
+        		return false;
+        }
+        return true;
+    }
+
+    /*
+     * Streaming search. It reads the input into a buffer of bufferSize characters at a time, so memory use
+     * depends on the buffer size and the longest pattern, not on the size of the input.
+     * A window is only checked once the buffer holds enough characters to verify the longest pattern from it.
+     * The characters that are not checked yet are carried to the front of the buffer before the next read,
+     * together with the one character that leaves the window next, and each band keeps its rolling hash.
+     * So matches that cross a buffer edge are found without rehashing anything.
+     * Matches are reported with absolute character offsets, band by band within each buffer.
+     * @return the number of characters searched
+     */
+    public long search(Reader reader, int bufferSize) throws IOException {
+        if (bufferSize < 1)
+        	throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+
+        SearchEvent event = start();
+        long searched = scanReader(reader, bufferSize);
+        finish(event, searched, 0);
+        return searched;
+    }
+
+    private long scanReader(Reader reader, int bufferSize) throws IOException {
+
+        PatternIndex.LengthBand[] bands = index.bands;
+        if (bands.length == 0)
+        	return 0;
+
+        char[] buffer = new char[bufferSize + index.maxPatternLength];
+        CharBuffer text = CharBuffer.wrap(buffer);
+        useText(text);
+
+        long[] bandHash = new long[bands.length];   //hash of each band's last window, carried from buffer to buffer
+        Arrays.fill(bandHash, NO_HASH);
+
+        long bufferOffset = 0;      //absolute offset of buffer[0]
+        int length = 0;             //characters in the buffer
+        int nextStart = 0;          //buffer index of the next window to check
+        boolean endOfInput = false;
+
+        while (true) {
+        	while (length < buffer.length) {
+        		int read = reader.read(buffer, length, buffer.length - length);
+        		if (read < 0) {
+        			endOfInput = true;
+        			break;
+        		}
+        		length += read;
+        	}
+
+        	//at the end of the input every window that fits is checked, otherwise only the ones the longest pattern fits in
+        	int endStart = endOfInput ? length : length - index.maxPatternLength + 1;
+
+        	for (int b = 0; b < bands.length; b++) {
+        		PatternIndex.LengthBand band = bands[b];
+        		int bandEndStart = Math.min(endStart, length - band.windowLength + 1);
+
+        		bandHash[b] = scanLengthBand(text, nextStart, bandEndStart, length, bufferOffset, band, bandHash[b]);
+        		if (bandHash[b] == STOPPED)
+        			return bufferOffset + length;
+        	}
+
+        	if (endOfInput)
+        		return bufferOffset + length;
+
+        	//carry the unchecked tail and the character before it to the front of the buffer
+        	int keepFrom = endStart - 1;
+        	System.arraycopy(buffer, keepFrom, buffer, 0, length - keepFrom);
+        	bufferOffset += keepFrom;
+        	length -= keepFrom;
+        	nextStart = 1;
+        }
+    }
+
+    /*
+     * File search that works on bytes instead of chars.
+     * The file is memory mapped in segments and the hash is rolled over the mapped bytes directly,
+     * so nothing is decoded or copied into the heap and files bigger than 2 GB can be searched.
+     * Each segment is mapped with maxPatternByteLength - 1 extra bytes from the next one, so a match that starts
+     * in the segment is verified even if it ends in the next one. Every segment checks only the windows that
+     * start inside it, so no match is reported twice.
+     * @return the number of bytes searched
+     */
+    public long search(FileChannel channel, int segmentSize) throws IOException {
+        if (segmentSize < 1 || segmentSize > Integer.MAX_VALUE - index.maxPatternByteLength)
+        	throw new IllegalArgumentException("segmentSize out of range: " + segmentSize);
+
+        SearchEvent event = start();
+        long searched = scanChannel(channel, segmentSize);
+        finish(event, 0, searched);
+        return searched;
+    }
+
+    private long scanChannel(FileChannel channel, int segmentSize) throws IOException {
+        int maxPatternByteLength = index.maxPatternByteLength;
+
+        long fileSize = channel.size();
+        patternView = index.patternBytes.duplicate();
+
+        for (long segmentStart = 0; segmentStart < fileSize; segmentStart += segmentSize) {
+        	long mappedSize = Math.min(fileSize - segmentStart, (long) segmentSize + Math.max(0, maxPatternByteLength - 1));
+        	MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, mappedSize);
+        	segmentView = segment.duplicate();
+
+        	int endStart = (int) Math.min(segmentSize, mappedSize);
+        	for (PatternIndex.LengthBand band : index.byteBands) {
+        		int bandEndStart = Math.min(endStart, (int) mappedSize - band.windowLength + 1);
+        		if (!scanByteBand(segment, bandEndStart, (int) mappedSize, segmentStart, band))
+        			return segmentStart + mappedSize;
+        	}
+        }
+        return fileSize;
+    }
+
+    /*
+     * Remembers the array behind the text, if it has one, so candidates can be compared with the arena
+     * by Arrays.equals, which the JIT turns into a vectorized compare.
+     */
+    private void useText(CharSequence text) {
+        textArray = null;
+        if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+        	CharBuffer buffer = (CharBuffer) text;
+        	textArray = buffer.array();
+        	textArrayOffset = buffer.arrayOffset() + buffer.position();
+        }
+    }
+
+    /*
+     * Number of candidates the last search verified character by character, including the ones that did not match.
+     */
+    public long getDoubleCheckCount() {
+        return doubleCheckCount;
+    }
+
+    /*
+     * Starts a search: the counters go back to zero and the flight recorder event starts timing.
+     */
+    private SearchEvent start() {
+        windowsScanned = 0;
+        hashHits = 0;
+        doubleCheckCount = 0;
+        matchCount = 0;
+        verificationNanos = 0;
+        startNanos = System.nanoTime();
+
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        return event;
+    }
+
+    /*
+     * Finishes a search: adds its counters to the metrics and commits the flight recorder event.
+     * A char search passes the characters it searched and a byte search the bytes, the other one is 0.
+     */
+    private void finish(SearchEvent event, long charactersSearched, long bytesSearched) {
+        long searchNanos = System.nanoTime() - startNanos;
+        event.end();
+        long falsePositives = doubleCheckCount - matchCount;
+
+        if (metrics != null)
+        	metrics.record(windowsScanned, hashHits, falsePositives, matchCount, verificationNanos, charactersSearched + bytesSearched, searchNanos);
+
+        if (event.shouldCommit()) {
+        	event.windowsScanned = windowsScanned;
+        	event.hashHits = hashHits;
+        	event.falsePositives = falsePositives;
+        	event.matches = matchCount;
+        	event.verificationNanos = verificationNanos;
+        	event.charactersSearched = charactersSearched;
+        	event.bytesSearched = bytesSearched;
+        	event.commit();
+        }
+    }
+
+    /*
+     * The byte version of scanLengthBand. It rolls the band's window over the bytes from the start of the buffer,
+     * checking windows that start before endStart.
+     * @return false if the sink asked to stop
+     */
+    private boolean scanByteBand(ByteBuffer bytes, int endStart, int bytesEnd, long offset, PatternIndex.LengthBand band) {
+        int windowLength = band.windowLength;
+
+        if (endStart <= 0) return true;
+        windowsScanned += endStart;
+
+        long textHash = index.hash(bytes, 0, windowLength);
+        int patternId = band.lookup(textHash);
+        if (patternId != PrefixHashTable.NOT_FOUND && !doubleCheckByteCandidates(bytes, 0, bytesEnd, offset, patternId))
+        	return false;
+
+        for (int i = 1; i < endStart; i++) {
+        	textHash = index.roll(textHash, index.foldByte(bytes.get(i - 1)), index.foldByte(bytes.get(i - 1 + windowLength)), band.CommonConstant);
+
+        	patternId = band.lookup(textHash);
+        	if (patternId != PrefixHashTable.NOT_FOUND && !doubleCheckByteCandidates(bytes, i, bytesEnd, offset, patternId))
+        		return false;
+        }
+        return true;
+    }
+
+    /*
+     * Verifies each candidate on the byte band's list by comparing its UTF-8 bytes with the buffer in place.
+     * A case-sensitive index compares the two ranges with ByteBuffer.mismatch through reusable views,
+     * a case-insensitive one folds each byte of the text.
+     * @return false if the sink asked to stop
+     */
+    private boolean doubleCheckByteCandidates(ByteBuffer bytes, int i, int bytesEnd, long offset, int patternId) {
+    	hashHits++;
+    	while (patternId != PrefixHashTable.NOT_FOUND) {
+    		doubleCheckCount++;
+    		long verifyStart = metrics != null ? System.nanoTime() : 0;
+
+    		ByteBuffer patternBytes = index.patternBytes;
+    		int patternStart = index.patternByteOffsets.get(patternId);
+    		int patternLength = index.getPatternByteLength(patternId);
+    		boolean matched = false;
+    		if (i + patternLength <= bytesEnd) {
+    			if (index.byteFoldTable == null) {
+    				segmentView.limit(i + patternLength).position(i);
+    				patternView.limit(patternStart + patternLength).position(patternStart);
+    				matched = segmentView.mismatch(patternView) < 0;
+    			} else {
+    				int j = 0;
+    				while (j < patternLength && index.foldByte(bytes.get(i + j)) == (patternBytes.get(patternStart + j) & 0xFF))
+    					j++;
+    				matched = j == patternLength;
+    			}
+    		}
+
+    		if (metrics != null)
+    			verificationNanos += System.nanoTime() - verifyStart;
+
+    		if (matched) {
+    			matchCount++;
+    			if (!sink.match(patternId, offset + i, offset + i + patternLength))
+    				return false;
+    		}
+    		patternId = index.nextByteCandidate.get(patternId);
+    	}
+    	return true;
+    }
+
+    /*
+     * Rolls the band's window over the text and verifies every candidate whose shortened hashCode matches.
+     * Windows start at every position from firstStart up to, but not including, endStart.
+     * Characters up to textEnd may be read to verify a candidate. offset is added to the positions reported to the sink.
+     * @param textHash hash of the window that starts at firstStart - 1, or NO_HASH to hash the first window from scratch
+     * @return the hash of the last window checked, or STOPPED if the sink asked to stop
+     */
+    private long scanLengthBand(CharSequence text, int firstStart, int endStart, int textEnd, long offset,
+    		PatternIndex.LengthBand band, long textHash) {
+        if (firstCharFilter != null)
+        	return skipScanLengthBand(text, firstStart, endStart, textEnd, offset, band, textHash);
+
+        int windowLength = band.windowLength;
+        int i = firstStart;
+
+        if (i >= endStart) return textHash;
+        windowsScanned += endStart - i;
+
+        if (textHash == NO_HASH) {
+        	//check for match at beginning of the text
+        	textHash = index.hash(text, i, windowLength);
+        	//check if any of the pattern matches the substring
+        	if (!doubleCheckCandidates(text, i, textEnd, offset, band.lookup(textHash)))
+        		return STOPPED;
+        	i++;
+        }
+
+        //check the match at text body
+
+        for (; i < endStart; i++) {
+
+        	int oldFirstCharIndex = i - 1;
+        	int newLastCharIndex = i -1 +  windowLength;
+
+        	/* doing hash code rolling. New hash is derived from previous hash */
+        	textHash = index.roll(textHash, index.fold(text.charAt(oldFirstCharIndex)), index.fold(text.charAt(newLastCharIndex)), band.CommonConstant);
+
+
+            /*
+             * match check by doing a lookup with pattern hash table. If return is not NOT_FOUND then there is potential match.
+             * invoke the deep match check to do character by character comparison with the original patterns to determine if it is a true match.
+             * The lookup works on the primitive hash code, so nothing is allocated here unless there is a hit.
+             */
+
+           int patternId = band.lookup(textHash);
+           if (patternId != PrefixHashTable.NOT_FOUND && !doubleCheckCandidates(text, i, textEnd, offset, patternId))
+        	   return STOPPED;
+        }
+
+        return textHash;
+    }
+
+    /*
+     * The skip-scan version of scanLengthBand. It asks the FirstCharFilter for the next window that can start a match
+     * and only hashes and probes that one. When the window is less than a window length past the last one hashed,
+     * the hash is rolled up to it, otherwise it is hashed from scratch, which is cheaper than rolling over the gap.
+     * @return the hash of the window that starts at endStart - 1, or NO_HASH if that window was skipped
+     */
+    private long skipScanLengthBand(CharSequence text, int firstStart, int endStart, int textEnd, long offset,
+    		PatternIndex.LengthBand band, long textHash) {
+        int windowLength = band.windowLength;
+        //start of the window textHash is for. Without one, a start far enough back that the first window is hashed from scratch
+        int hashedStart = textHash == NO_HASH ? firstStart - 1 - windowLength : firstStart - 1;
+        skipBufferEnd = skipBufferStart;
+
+        for (int i = firstStart; i < endStart; i++) {
+        	i = nextFirstChar(text, i, endStart);
+        	if (i >= endStart)
+        		break;
+
+        	if (i - hashedStart < windowLength) {
+        		for (int k = hashedStart + 1; k <= i; k++)
+        			textHash = index.roll(textHash, index.fold(text.charAt(k - 1)), index.fold(text.charAt(k - 1 + windowLength)), band.CommonConstant);
+        	} else {
+        		textHash = index.hash(text, i, windowLength);
+        	}
+        	hashedStart = i;
+        	windowsScanned++;
+
+        	int patternId = band.lookup(textHash);
+        	if (patternId != PrefixHashTable.NOT_FOUND && !doubleCheckCandidates(text, i, textEnd, offset, patternId))
+        		return STOPPED;
+        }
+
+        return hashedStart == endStart - 1 ? textHash : NO_HASH;
+    }
+
+    /*
+     * The first position from from up to endStart whose character some pattern starts with, or endStart.
+     * A vectorized filter needs the characters in an array. Text backed by one is passed as it is, a String or
+     * StringBuilder is copied a block at a time into skipBuffer, which is still much faster than checking each character.
+     * The block is kept for the next call, since when matches can start at many places that one is usually in it too.
+     */
+    private int nextFirstChar(CharSequence text, int from, int endStart) {
+        if (textArray != null)
+        	return firstCharFilter.next(textArray, textArrayOffset + from, textArrayOffset + endStart) - textArrayOffset;
+
+        if (!firstCharFilter.isVectorized() || !(text instanceof String || text instanceof StringBuilder))
+        	return firstCharFilter.next(text, from, endStart);
+
+        if (skipBuffer == null)
+        	skipBuffer = new char[SKIP_BUFFER_SIZE];
+        int i = from;
+        while (i < endStart) {
+        	if (i < skipBufferStart || i >= skipBufferEnd) {
+        		skipBufferStart = i;
+        		skipBufferEnd = Math.min(endStart, i + SKIP_BUFFER_SIZE);
+        		if (text instanceof String)
+        			((String) text).getChars(skipBufferStart, skipBufferEnd, skipBuffer, 0);
+        		else
+        			((StringBuilder) text).getChars(skipBufferStart, skipBufferEnd, skipBuffer, 0);
+        	}
+
+        	int end = Math.min(endStart, skipBufferEnd);
+        	int next = firstCharFilter.next(skipBuffer, i - skipBufferStart, end - skipBufferStart) + skipBufferStart;
+        	if (next < end)
+        		return next;
+        	i = end;
+        }
+        return endStart;
+    }
+
+    /*
+     * Walks the list of candidate patterns that share a shortened hashCode and verifies each of them.
+     * @return false if the sink asked to stop
+     */
+    private boolean doubleCheckCandidates(CharSequence txt, int i, int textEnd, long offset, int patternId) {
+    	if (patternId == PrefixHashTable.NOT_FOUND)
+    		return true;
+
+    	hashHits++;
+    	while (patternId != PrefixHashTable.NOT_FOUND) {
+    		long verifyStart = metrics != null ? System.nanoTime() : 0;
+    		boolean matched = doubleCheckMultiplePatternMatchWithDifferentPatternLength(txt, i, textEnd, patternId);
+    		if (metrics != null)
+    			verificationNanos += System.nanoTime() - verifyStart;
+
+    		if (matched) {
+    			matchCount++;
+    			if (!sink.match(patternId, offset + i, offset + i + index.getPatternLength(patternId)))
+    				return false;
+    		}
+    		patternId = index.nextCandidate.get(patternId);
+    	}
+    	return true;
+    }
+
+
+    /*
+     * This is helper method that does the character by character comparision.
+     * It is called when there is hash code match on the shortened pattern.
+     * The text is compared with the pattern's characters in the arena where they are, so nothing is allocated.
+     * When the text and the arena are backed by arrays and case matters, Arrays.equals compares the two ranges at once,
+     * otherwise the characters are compared one by one, through the fold table for a case-insensitive index.
+     */
+    private boolean doubleCheckMultiplePatternMatchWithDifferentPatternLength(CharSequence txt, int i, int textEnd, int patternId) {
+    	doubleCheckCount++;
+
+    	//find out where the pattern whose hashcode matched is in the arena, and its real length, not the shortened one
+    	CharBuffer patternChars = index.patternChars;
+    	int patternStart = index.patternOffsets.get(patternId);
+    	int patternLength = index.getPatternLength(patternId);
+    	if (i + patternLength > textEnd) //make sure don't go over the end of text
+    		return false;
+
+    	char[] foldTable = index.foldTable;
+    	if (foldTable == null) {
+    		if (textArray != null && patternArray != null)
+    			return Arrays.equals(textArray, textArrayOffset + i, textArrayOffset + i + patternLength,
+    					patternArray, patternStart, patternStart + patternLength);
+
+    		for (int j = 0; j < patternLength; j++) {
+    			if (txt.charAt(i + j) != patternChars.get(patternStart + j))
+    				return false;
+    		}
+    		return true;
+    	}
+
+    	for (int j = 0; j < patternLength; j++) {
+    		char c = txt.charAt(i + j);
+    		char p = patternChars.get(patternStart + j);
+    		if (c != p && foldTable[c] != foldTable[p])
+    			return false;
+    	}
+    	return true;
+    }
+}
@@ -0,0 +1,50 @@
+package textsearch;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+/*
+ * This is the Java Flight Recorder event for one search.
+ * It costs nothing unless a recording has the event enabled, so the false positive rate can be
+ * watched in production with for example: jcmd <pid> JFR.start settings=profile
+ */
+@Name("textsearch.Search")
+@Label("Text Search")
+@Category("Text Search")
+@Description("One multiple pattern search with its rolling hash counters")
+@StackTrace(false)
+class SearchEvent extends Event {
+
+    @Label("Windows Scanned")
+    long windowsScanned;
+
+    @Label("Hash Hits")
+    long hashHits;
+
+    @Label("False Positives")
+    @Description("Candidates verified character by character that did not match")
+    long falsePositives;
+
+    @Label("Matches")
+    long matches;
+
+    @Label("Verification Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long verificationNanos;
+
+    @Label("Characters Searched")
+    @Description("UTF-16 characters searched, 0 for searches that work on bytes")
+    long charactersSearched;
+
+    @Label("Bytes Searched")
+    @DataAmount(DataAmount.BYTES)
+    @Description("Bytes searched by a search that works on bytes, 0 for searches that work on characters")
+    long bytesSearched;
+}
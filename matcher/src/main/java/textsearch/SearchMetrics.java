@@ -0,0 +1,130 @@
+package textsearch;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/*
+ * This is the class that collects counters about searches, for watching a searcher in production.
+ * Metrics are opt-in: a RollingHash only records them when it is given a SearchMetrics.
+ * A search counts in plain fields of its SearchCursor and adds them here once, when it finishes,
+ * so the scan loop pays nothing for them. The counters are LongAdders, which are striped per thread,
+ * so many threads can finish searches at once without contending on one counter.
+ *
+ * Every search is also reported as a SearchEvent to Java Flight Recorder, whether metrics are on or not.
+ */
+public class SearchMetrics {
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder windowsScanned = new LongAdder();
+    private final LongAdder hashHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder verificationNanos = new LongAdder();
+    private final LongAdder charactersSearched = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    /*
+     * Adds the counters of one finished search.
+     */
+    void record(long windows, long hits, long falsePositiveCount, long matchCount, long verifyNanos, long characters, long nanos) {
+        searches.increment();
+        windowsScanned.add(windows);
+        hashHits.add(hits);
+        falsePositives.add(falsePositiveCount);
+        matches.add(matchCount);
+        verificationNanos.add(verifyNanos);
+        charactersSearched.add(characters);
+        searchNanos.add(nanos);
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    /*
+     * Windows whose hash was looked up, summed over all length bands.
+     */
+    public long getWindowsScanned() {
+        return windowsScanned.sum();
+    }
+
+    /*
+     * Windows whose hash was found in a band's table, so their candidates had to be verified.
+     */
+    public long getHashHits() {
+        return hashHits.sum();
+    }
+
+    /*
+     * Candidates that were verified character by character and did not match.
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    /*
+     * Time spent verifying candidates, in nanoseconds.
+     */
+    public long getVerificationNanos() {
+        return verificationNanos.sum();
+    }
+
+    /*
+     * Characters searched, or bytes for searches that work on bytes.
+     */
+    public long getCharactersSearched() {
+        return charactersSearched.sum();
+    }
+
+    /*
+     * Time spent in searches, in nanoseconds. Searches that run at the same time are added up,
+     * so this is like CPU time rather than wall clock time.
+     */
+    public long getSearchNanos() {
+        return searchNanos.sum();
+    }
+
+    /*
+     * Characters (or bytes) searched per second of search time, so per thread.
+     */
+    public double getCharactersPerSecond() {
+        long nanos = getSearchNanos();
+        return nanos == 0 ? 0 : getCharactersSearched() * 1e9 / nanos;
+    }
+
+    /*
+     * Fraction of verified candidates that did not match.
+     */
+    public double getFalsePositiveRate() {
+        long falsePositiveCount = getFalsePositives();
+        long verified = falsePositiveCount + getMatches();
+        return verified == 0 ? 0 : (double) falsePositiveCount / verified;
+    }
+
+    public void reset() {
+        searches.reset();
+        windowsScanned.reset();
+        hashHits.reset();
+        falsePositives.reset();
+        matches.reset();
+        verificationNanos.reset();
+        charactersSearched.reset();
+        searchNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "searches=" + getSearches()
+        		+ " windowsScanned=" + getWindowsScanned()
+        		+ " hashHits=" + getHashHits()
+        		+ " falsePositives=" + getFalsePositives()
+        		+ " matches=" + getMatches()
+        		+ " verificationNanos=" + getVerificationNanos()
+        		+ " charactersSearched=" + getCharactersSearched()
+        		+ " charactersPerSecond=" + Math.round(getCharactersPerSecond());
+    }
+}
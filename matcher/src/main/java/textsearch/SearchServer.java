@@ -0,0 +1,483 @@
+package textsearch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+
+/*
+ * This is the class that serves searches over HTTP on localhost, so pattern sets are compiled once and
+ * every caller after that only pays for the search.
+ *
+ *   PUT    /patterns/{name}   body: one pattern per line. ?ignoreCase=true, ?wholeWords=true. Compiles and registers the set
+ *   DELETE /patterns/{name}   drops the set
+ *   GET    /patterns          names of the sets
+ *   POST   /search/{name}     body: the document. ?count=true for the number of matches only
+ *   GET    /stats             queue depth, batch sizes and latency percentiles of each set
+ *
+ * Requests for a set wait in the set's bounded queue. Each of the set's search threads takes everything that is waiting,
+ * up to maxBatchSize, and searches it as one batch: the documents are joined, a line break between each two, and the
+ * joined text is searched with one call to the matcher, see BatchSearch. So under load many small requests cost one
+ * wake-up, one queue operation and one search, with its metrics and flight recorder event, instead of one each.
+ * When the queue is full a request is turned away with 503 instead of waiting. Latency is measured from when the
+ * request is read to when its result is ready, so it includes the wait in the queue and the search of the whole batch.
+ *
+ * It only listens on the loopback address. There is no authentication, so it is not meant to be reachable from outside the host.
+ */
+public class SearchServer {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;     //requests that can wait for one pattern set
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;        //requests searched in one batch at most
+    static final long RESULT_TIMEOUT_SECONDS = 30;
+    static final int MAX_JOINED_LENGTH = 1 << 20;               //characters of a batch joined into one search at most
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final int searchThreads;
+    private final int maxBatchSize;
+    private final int queueCapacity;
+    private final Map<String, PatternSet> patternSets = new ConcurrentHashMap<String, PatternSet>();
+
+    /*
+     * Constructor
+     * @param port port to listen on, 0 for any free port
+     * @param searchThreads search threads of each pattern set
+     * @param maxBatchSize requests searched in one batch at most, 1 for no batching
+     */
+    public SearchServer(int port, int searchThreads, int maxBatchSize) throws IOException {
+        this(port, searchThreads, maxBatchSize, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public SearchServer(int port, int searchThreads, int maxBatchSize, int queueCapacity) throws IOException {
+        if (searchThreads < 1 || maxBatchSize < 1 || queueCapacity < 1)
+        	throw new IllegalArgumentException("searchThreads, maxBatchSize and queueCapacity must be positive: "
+        			+ searchThreads + ", " + maxBatchSize + ", " + queueCapacity);
+
+        this.searchThreads = searchThreads;
+        this.maxBatchSize = maxBatchSize;
+        this.queueCapacity = queueCapacity;
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        //handler threads mostly wait for the search threads, so there are more of them than cores
+        handlers = Executors.newFixedThreadPool(Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+        server.setExecutor(handlers);
+        server.createContext("/patterns", this::handlePatterns);
+        server.createContext("/search/", this::handleSearch);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /*
+     * Starts the server: java -cp matcher.jar textsearch.SearchServer [port [searchThreads [maxBatchSize]]]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int batch = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_BATCH_SIZE;
+
+        SearchServer searchServer = new SearchServer(port, threads, batch);
+        searchServer.start();
+        System.out.println("listening on http://localhost:" + searchServer.getPort());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /*
+     * Stops accepting requests, waits up to delaySeconds for the ones being handled, then stops every search thread.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        for (PatternSet set : patternSets.values())
+        	set.close();
+        patternSets.clear();
+        handlers.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /*
+     * Compiles the patterns and registers them under the name, replacing a set of the same name.
+     * Requests still waiting for the replaced set are answered with 503.
+     * @return the number of patterns compiled
+     */
+    public int register(String name, Set<String> patternSet, boolean ignoreCase, boolean wholeWords) {
+        MultiPatternMatcher matcher = wholeWords
+        		? new TokenMatcher(patternSet, CharClass.LETTERS_AND_DIGITS, Collections.<String>emptySet(), ignoreCase)
+        		: MatcherFactory.create(patternSet, ignoreCase);
+        PatternSet previous = patternSets.put(name, new PatternSet(name, matcher));
+        if (previous != null)
+        	previous.close();
+        return matcher.getPatternCount();
+    }
+
+    public boolean unregister(String name) {
+        PatternSet previous = patternSets.remove(name);
+        if (previous != null)
+        	previous.close();
+        return previous != null;
+    }
+
+    private void handlePatterns(HttpExchange exchange) throws IOException {
+        try {
+        	String name = exchange.getRequestURI().getPath().substring("/patterns".length());
+        	if (name.startsWith("/"))
+        		name = name.substring(1);
+        	String method = exchange.getRequestMethod();
+
+        	if (name.isEmpty() && method.equals("GET")) {
+        		StringBuilder json = new StringBuilder("[");
+        		for (String setName : new TreeMap<String, PatternSet>(patternSets).keySet()) {
+        			if (json.length() > 1)
+        				json.append(',');
+        			Json.appendString(json, setName);
+        		}
+        		respond(exchange, 200, json.append("]").toString());
+        	} else if (name.isEmpty() || name.contains("/")) {
+        		respond(exchange, 404, error("no such pattern set"));
+        	} else if (method.equals("PUT")) {
+        		Set<String> patternSet = new HashSet<String>();
+        		for (String line : readBody(exchange).split("\r?\n")) {
+        			if (line.length() > 0)
+        				patternSet.add(line);
+        		}
+        		String query = exchange.getRequestURI().getQuery();
+        		int compiled = register(name, patternSet, queryFlag(query, "ignoreCase"), queryFlag(query, "wholeWords"));
+        		respond(exchange, 200, "{\"name\":" + Json.appendString(new StringBuilder(), name) + ",\"patterns\":" + compiled + "}");
+        	} else if (method.equals("DELETE")) {
+        		boolean removed = unregister(name);
+        		respond(exchange, removed ? 200 : 404, removed ? "{}" : error("no such pattern set"));
+        	} else {
+        		respond(exchange, 405, error("method not allowed"));
+        	}
+        } catch (IllegalArgumentException e) {
+        	respond(exchange, 400, error(e.getMessage()));
+        }
+    }
+
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        long startNanos = System.nanoTime();
+        if (!exchange.getRequestMethod().equals("POST")) {
+        	respond(exchange, 405, error("method not allowed"));
+        	return;
+        }
+        PatternSet set = patternSets.get(exchange.getRequestURI().getPath().substring("/search/".length()));
+        if (set == null) {
+        	respond(exchange, 404, error("no such pattern set"));
+        	return;
+        }
+
+        SearchRequest request = new SearchRequest(readBody(exchange), queryFlag(exchange.getRequestURI().getQuery(), "count"), startNanos);
+        if (!set.queue.offer(request)) {
+        	set.rejected.increment();
+        	respond(exchange, 503, error("queue full"));
+        	return;
+        }
+        //the set may have been replaced while the request was queued, then nothing would ever take it
+        if (set.closed)
+        	set.failWaiting();
+
+        try {
+        	respond(exchange, 200, request.result.get(RESULT_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+        	int status = e.getCause() instanceof IllegalStateException ? 503 : 500;
+        	respond(exchange, status, error(String.valueOf(e.getCause().getMessage())));
+        } catch (TimeoutException e) {
+        	respond(exchange, 504, error("search timed out"));
+        } catch (InterruptedException e) {
+        	Thread.currentThread().interrupt();
+        	respond(exchange, 503, error("server stopping"));
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        StringBuilder json = new StringBuilder("{");
+        for (PatternSet set : new TreeMap<String, PatternSet>(patternSets).values()) {
+        	if (json.length() > 1)
+        		json.append(',');
+        	Json.appendString(json, set.name).append(':');
+        	set.appendStats(json);
+        }
+        respond(exchange, 200, json.append("}").toString());
+    }
+
+    /*
+     * A registered pattern set: its compiled matcher, the queue of requests waiting for it and its search threads.
+     */
+    private final class PatternSet {
+
+        final String name;
+        final MultiPatternMatcher matcher;
+        final BlockingQueue<SearchRequest> queue = new ArrayBlockingQueue<SearchRequest>(queueCapacity);
+        final List<Thread> threads = new ArrayList<Thread>();
+        final LatencyHistogram latencyMicros = new LatencyHistogram();
+        final LongAdder requests = new LongAdder();
+        final LongAdder batches = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        volatile boolean closed;
+
+        PatternSet(String name, MultiPatternMatcher matcher) {
+        	this.name = name;
+        	this.matcher = matcher;
+        	for (int t = 0; t < searchThreads; t++) {
+        		Thread thread = new Thread(this::searchBatches, "search-" + name + "-" + t);
+        		thread.setDaemon(true);
+        		thread.start();
+        		threads.add(thread);
+        	}
+        }
+
+        /*
+         * The loop of a search thread: wait for a request, take whatever else is waiting, search them all in one pass.
+         */
+        private void searchBatches() {
+        	List<SearchRequest> batch = new ArrayList<SearchRequest>(maxBatchSize);
+        	BatchSearch batchSearch = new BatchSearch(maxBatchSize);
+        	StringBuilder json = new StringBuilder();
+
+        	while (!closed) {
+        		try {
+        			batch.add(queue.take());
+        		} catch (InterruptedException e) {
+        			break;
+        		}
+        		queue.drainTo(batch, maxBatchSize - 1);
+        		batches.increment();
+        		requests.add(batch.size());
+
+        		try {
+        			batchSearch.search(matcher, batch);
+        			for (int d = 0; d < batch.size(); d++)
+        				batch.get(d).result.complete(result(batchSearch, d, json));
+        		} catch (RuntimeException e) {
+        			for (SearchRequest request : batch)
+        				request.result.completeExceptionally(e);
+        		}
+        		for (SearchRequest request : batch)
+        			latencyMicros.record((System.nanoTime() - request.startNanos) / 1000);
+        		batch.clear();
+        	}
+        }
+
+        /*
+         * The JSON answer for document d of the batch just searched.
+         */
+        private String result(BatchSearch batchSearch, int d, StringBuilder json) {
+        	json.setLength(0);
+        	json.append("{\"count\":").append(batchSearch.counts[d]);
+        	if (batchSearch.countOnly[d])
+        		return json.append('}').toString();
+
+        	MatchCollector collector = batchSearch.collectors[d];
+        	json.append(",\"matches\":[");
+        	for (int m = 0; m < collector.size(); m++) {
+        		if (m > 0)
+        			json.append(',');
+        		json.append("{\"pattern\":");
+        		Json.appendString(json, matcher.getPattern(collector.getPatternId(m)));
+        		json.append(",\"start\":").append(collector.getStart(m)).append(",\"end\":").append(collector.getEnd(m)).append('}');
+        	}
+        	return json.append("]}").toString();
+        }
+
+        /*
+         * Stops the search threads and fails the requests still waiting.
+         */
+        void close() {
+        	closed = true;
+        	for (Thread thread : threads)
+        		thread.interrupt();
+        	failWaiting();
+        }
+
+        void failWaiting() {
+        	List<SearchRequest> waiting = new ArrayList<SearchRequest>();
+        	queue.drainTo(waiting);
+        	for (SearchRequest request : waiting)
+        		request.result.completeExceptionally(new IllegalStateException("pattern set " + name + " was replaced or removed"));
+        }
+
+        void appendStats(StringBuilder json) {
+        	long requestCount = requests.sum();
+        	long batchCount = batches.sum();
+        	json.append("{\"patterns\":").append(matcher.getPatternCount())
+        			.append(",\"queueDepth\":").append(queue.size())
+        			.append(",\"requests\":").append(requestCount)
+        			.append(",\"rejected\":").append(rejected.sum())
+        			.append(",\"batches\":").append(batchCount)
+        			.append(",\"meanBatchSize\":").append(batchCount > 0 ? (double) requestCount / batchCount : 0)
+        			.append(",\"latencyMicros\":{\"p50\":").append(latencyMicros.getPercentile(50))
+        			.append(",\"p90\":").append(latencyMicros.getPercentile(90))
+        			.append(",\"p99\":").append(latencyMicros.getPercentile(99))
+        			.append(",\"p999\":").append(latencyMicros.getPercentile(99.9))
+        			.append(",\"max\":").append(latencyMicros.getMax())
+        			.append("}}");
+        }
+    }
+
+    /*
+     * The state a search thread reuses for every batch.
+     *
+     * The documents of a batch are joined, a line break between each two, up to MAX_JOINED_LENGTH characters,
+     * and each joined text is searched with one call to the matcher, so the matcher sets up its scan once for
+     * the batch instead of once for each document. A document longer than that is searched as it is, not copied.
+     * Every match goes to the document it starts in, found by a binary search of the document starts since
+     * a matcher need not report matches in order. A match that runs past the end of its document took in
+     * the line break or the next document and is dropped, so each document gets the matches a search of it
+     * alone gives. The line break also ends a word, so a whole-word search does not join the last word of
+     * one document to the first of the next.
+     */
+    static final class BatchSearch implements MatchSink {
+
+        final long[] counts;                    //matches of each document
+        final boolean[] countOnly;
+        final MatchCollector[] collectors;      //matches of each document, relative to its start, unless countOnly
+        private final int[] documentStarts;     //where each document starts in the joined text being searched
+        private final int[] documentEnds;
+        private final StringBuilder joined = new StringBuilder();
+        private int first;                      //documents first up to last are in the joined text being searched
+        private int last;
+
+        BatchSearch(int maxBatchSize) {
+        	counts = new long[maxBatchSize];
+        	countOnly = new boolean[maxBatchSize];
+        	collectors = new MatchCollector[maxBatchSize];
+        	for (int d = 0; d < maxBatchSize; d++)
+        		collectors[d] = new MatchCollector();
+        	documentStarts = new int[maxBatchSize];
+        	documentEnds = new int[maxBatchSize];
+        }
+
+        void search(MultiPatternMatcher matcher, List<SearchRequest> batch) {
+        	for (int d = 0; d < batch.size(); d++) {
+        		counts[d] = 0;
+        		countOnly[d] = batch.get(d).countOnly;
+        		collectors[d].clear();
+        	}
+
+        	for (first = 0; first < batch.size(); first = last) {
+        		long length = batch.get(first).document.length();
+        		for (last = first + 1; last < batch.size(); last++) {
+        			length += 1 + batch.get(last).document.length();
+        			if (length > MAX_JOINED_LENGTH)
+        				break;
+        		}
+        		matcher.search(join(batch), this);
+        	}
+        }
+
+        /*
+         * Joins documents first up to last and notes where each one starts and ends.
+         */
+        private CharSequence join(List<SearchRequest> batch) {
+        	int position = 0;
+        	for (int d = first; d < last; d++) {
+        		documentStarts[d] = position;
+        		position += batch.get(d).document.length();
+        		documentEnds[d] = position++;
+        	}
+        	if (last - first == 1)
+        		return batch.get(first).document;
+
+        	joined.setLength(0);
+        	for (int d = first; d < last; d++) {
+        		if (d > first)
+        			joined.append('\n');
+        		joined.append(batch.get(d).document);
+        	}
+        	return joined;
+        }
+
+        @Override
+        public boolean match(int patternId, long start, long end) {
+        	int d = Arrays.binarySearch(documentStarts, first, last, (int) start);
+        	if (d < 0)
+        		d = -d - 2;         //the document before the insertion point is the one the match starts in
+        	if (end > documentEnds[d])
+        		return true;
+
+        	counts[d]++;
+        	if (!countOnly[d])
+        		collectors[d].match(patternId, start - documentStarts[d], end - documentStarts[d]);
+        	return true;
+        }
+    }
+
+    /*
+     * A document waiting to be searched, and where its result goes.
+     */
+    static final class SearchRequest {
+
+        final String document;
+        final boolean countOnly;
+        final long startNanos;
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+
+        SearchRequest(String document, boolean countOnly, long startNanos) {
+        	this.document = document;
+        	this.countOnly = countOnly;
+        	this.startNanos = startNanos;
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+        	ByteArrayOutputStream body = new ByteArrayOutputStream();
+        	in.transferTo(body);
+        	return body.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /*
+     * True if the query has name=true.
+     */
+    private static boolean queryFlag(String query, String name) {
+        if (query == null)
+        	return false;
+        for (String parameter : query.split("&")) {
+        	if (parameter.equals(name + "=true"))
+        		return true;
+        }
+        return false;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.appendString(new StringBuilder(), message) + "}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+        	out.write(body);
+        }
+    }
+}
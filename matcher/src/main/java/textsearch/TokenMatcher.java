@@ -0,0 +1,217 @@
+package textsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/*
+ * This is the class that does whole-word search, one hash lookup per token of the text.
+ * The text is split into tokens by a CharClass as it is read. Each token whose length some pattern has is hashed
+ * once, character by character, and looked up in a table of the patterns' hash codes, so a search costs about one
+ * table read per word whatever the number of patterns. Nothing is rolled over the positions inside a word,
+ * and a pattern only matches a whole token, so "the" is not found inside "there" or "bathe".
+ *
+ * Every pattern has to be one token of the CharClass. Stopwords are taken out of the pattern set when it is
+ * compiled, ignoring case, so the search never looks at them.
+ * The bigO is O(n+p) n - length of text to be searched. p - number of matches
+ */
+public class TokenMatcher implements MultiPatternMatcher {
+
+    /*
+     * Words too common to be worth searching for. These are the words the GUI has always left out of a search.
+     */
+    public static final Set<String> DEFAULT_STOPWORDS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+    		"a", "am", "are", "at", "for", "is", "of", "on", "or", "that", "the", "there", "this", "to", "was", "were")));
+
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+
+    private final CharClass tokenChars;
+    private final char[] foldTable;             //character -> folded character, null when the search is case-sensitive
+    private final String[] patterns;            //patterns indexed by pattern id
+    private final char[] patternChars;          //the patterns' characters, folded when the search ignores case
+    private final int[] patternOffsets;         //start of each pattern in patternChars, and the end of the last
+    private final PrefixHashTable tokenTable;   //hash code of a pattern -> id of the last pattern with that hash code
+    private final int[] nextCandidate;          //id of the next pattern with the same hash code, -1 at the end
+    private final boolean[] patternLengths;     //length -> does some pattern have it, up to maxPatternLength
+    private final int maxPatternLength;
+
+    /*
+     * Constructor
+     * Tokens are runs of letters and digits, DEFAULT_STOPWORDS are left out and case matters.
+     */
+    public TokenMatcher(Set<String> patternSet) {
+        this(patternSet, CharClass.LETTERS_AND_DIGITS, DEFAULT_STOPWORDS, false);
+    }
+
+    public TokenMatcher(Set<String> patternSet, boolean caseInsensitive) {
+        this(patternSet, CharClass.LETTERS_AND_DIGITS, DEFAULT_STOPWORDS, caseInsensitive);
+    }
+
+    /*
+     * Constructor with a choice of token characters and stopwords.
+     * Empty patterns and stopwords are dropped. A pattern with a character outside tokenChars could never
+     * match a whole token, so it is rejected with an IllegalArgumentException.
+     */
+    public TokenMatcher(Set<String> patternSet, CharClass tokenChars, Set<String> stopwords, boolean caseInsensitive) {
+        this.tokenChars = tokenChars;
+        this.foldTable = caseInsensitive ? CaseFolding.CHAR_FOLD : null;
+
+        Set<String> foldedStopwords = new HashSet<String>();
+        for (String stopword : stopwords)
+        	foldedStopwords.add(fold(stopword, CaseFolding.CHAR_FOLD));
+
+        List<String> patternList = new ArrayList<String>();
+        int totalLength = 0;
+        for (String pattern : patternSet) {
+        	if (pattern.length() == 0 || foldedStopwords.contains(fold(pattern, CaseFolding.CHAR_FOLD)))
+        		continue;
+        	for (int j = 0; j < pattern.length(); j++) {
+        		if (!tokenChars.contains(pattern.charAt(j)))
+        			throw new IllegalArgumentException("pattern is not a single token: \"" + pattern + "\"");
+        	}
+        	patternList.add(pattern);
+        	totalLength += pattern.length();
+        }
+        patterns = patternList.toArray(new String[0]);
+
+        patternChars = new char[totalLength];
+        patternOffsets = new int[patterns.length + 1];
+        tokenTable = new PrefixHashTable(patterns.length);
+        nextCandidate = new int[patterns.length];
+        int max = 0;
+
+        for (int patternId = 0; patternId < patterns.length; patternId++) {
+        	String pattern = patterns[patternId];
+        	int start = patternOffsets[patternId];
+        	long hash = 0;
+        	for (int j = 0; j < pattern.length(); j++) {
+        		char c = fold(pattern.charAt(j));
+        		patternChars[start + j] = c;
+        		hash = (hash ^ c) * MIX;
+        	}
+        	patternOffsets[patternId + 1] = start + pattern.length();
+
+        	long key = finish(hash);
+        	int previous = tokenTable.get(key);
+        	nextCandidate[patternId] = previous;
+        	tokenTable.put(key, patternId);
+
+        	max = Math.max(max, pattern.length());
+        }
+        maxPatternLength = max;
+        patternLengths = new boolean[max + 1];
+        for (String pattern : patterns)
+        	patternLengths[pattern.length()] = true;
+    }
+
+    @Override
+    public void search(CharSequence text, MatchSink sink) {
+        search(text, 0, text.length(), sink);
+    }
+
+    /*
+     * Searches only the tokens that start from position from up to, but not including, position to.
+     * The character before from is looked at, so a word cut by from is not taken for a whole token,
+     * and a token that starts before to is read to its end even past to. Positions are positions in text,
+     * so a long text can be searched a range at a time with no overlap and no match is found twice.
+     */
+    public void search(CharSequence text, int from, int to, MatchSink sink) {
+        int length = text.length();
+        int i = from;
+
+        //skip the rest of a token that started before from
+        if (i > 0) {
+        	while (i < to && tokenChars.contains(text.charAt(i - 1)) && tokenChars.contains(text.charAt(i)))
+        		i++;
+        }
+
+        while (true) {
+        	//skip to the start of the next token
+        	while (i < to && !tokenChars.contains(text.charAt(i)))
+        		i++;
+        	if (i >= to)
+        		return;
+
+        	int start = i;
+        	do {
+        		i++;
+        	} while (i < length && tokenChars.contains(text.charAt(i)));
+
+        	if (!lookUp(text, start, i, sink))
+        		return;
+        }
+    }
+
+    /*
+     * Looks the token from start up to end up in the table and reports every pattern it is.
+     * Only a token whose length some pattern has is hashed.
+     * The search loop calls this once per token so that it has a single back edge: with one for every way to go on
+     * to the next token, the C2 compiler of JDK 17.0.9 crashed compiling it when jdk.incubator.vector was loaded.
+     * @return false when the sink stopped the search
+     */
+    private boolean lookUp(CharSequence text, int start, int end, MatchSink sink) {
+        int tokenLength = end - start;
+        if (tokenLength > maxPatternLength || !patternLengths[tokenLength])
+        	return true;
+
+        long hash = 0;
+        for (int j = start; j < end; j++)
+        	hash = (hash ^ fold(text.charAt(j))) * MIX;
+
+        for (int patternId = tokenTable.get(finish(hash)); patternId != PrefixHashTable.NOT_FOUND; patternId = nextCandidate[patternId]) {
+        	if (matches(text, start, tokenLength, patternId) && !sink.match(patternId, start, end))
+        		return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String getPattern(int patternId) {
+        return patterns[patternId];
+    }
+
+    @Override
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    public int getMaxPatternLength() {
+        return maxPatternLength;
+    }
+
+    /*
+     * Compares the token with the pattern, since different tokens can have the same hash code.
+     */
+    private boolean matches(CharSequence text, int start, int tokenLength, int patternId) {
+        int patternStart = patternOffsets[patternId];
+        if (patternOffsets[patternId + 1] - patternStart != tokenLength)
+        	return false;
+        for (int j = 0; j < tokenLength; j++) {
+        	if (fold(text.charAt(start + j)) != patternChars[patternStart + j])
+        		return false;
+        }
+        return true;
+    }
+
+    private char fold(char c) {
+        return foldTable != null ? foldTable[c] : c;
+    }
+
+    private static String fold(String s, char[] foldTable) {
+        char[] folded = new char[s.length()];
+        for (int j = 0; j < folded.length; j++)
+        	folded[j] = foldTable[s.charAt(j)];
+        return new String(folded);
+    }
+
+    /*
+     * Mixes the high bits back down and clears the sign bit, since PrefixHashTable keys are never negative.
+     */
+    private static long finish(long hash) {
+        return (hash ^ hash >>> 31) & Long.MAX_VALUE;
+    }
+}
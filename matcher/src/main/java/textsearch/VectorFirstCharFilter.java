@@ -0,0 +1,53 @@
+package textsearch;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/*
+ * This is the FirstCharFilter that uses the Vector API.
+ * It loads as many characters as fit in the widest vector the CPU has, 32 with AVX-512, compares them with
+ * every character of the set and checks the combined mask, so a run of characters that are not in the set
+ * costs a few instructions per vector instead of a lookup per character.
+ * It is only loaded when the jdk.incubator.vector module is present, see FirstCharFilter.create.
+ */
+final class VectorFirstCharFilter extends FirstCharFilter {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    private final short[] setChars;
+
+    VectorFirstCharFilter(char[] firstChars) {
+        super(firstChars);
+        setChars = new short[firstChars.length];
+        for (int k = 0; k < firstChars.length; k++)
+        	setChars[k] = (short) firstChars[k];
+    }
+
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    int next(char[] chars, int from, int to) {
+        //when matches can start almost anywhere the next position usually is the first one, which is cheaper to check alone
+        if (from < to && member[chars[from]])
+        	return from;
+
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+        	ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+        	VectorMask<Short> inSet = v.eq(setChars[0]);
+        	for (int k = 1; k < setChars.length; k++)
+        		inSet = inSet.or(v.eq(setChars[k]));
+
+        	if (inSet.anyTrue())
+        		return i + inSet.firstTrue();
+        }
+        //the last few characters do not fill a vector
+        return super.next(chars, i, to);
+    }
+}
@@ -0,0 +1,63 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+
+class AhoCorasickTest {
+
+    /*
+     * The automaton must find the same matches as the rolling hash.
+     */
+    @Test
+    void findsTheSameMatchesAsTheRollingHash() {
+        AhoCorasick matcher = new AhoCorasick(SampleText.PATTERNS);
+
+        assertEquals(SampleText.expectedMatches(SampleText.PATTERNS, SampleText.TEXT), matcher.multiplePatternMatchSearch(SampleText.TEXT));
+        assertEquals(SampleText.matches(new RollingHash(SampleText.PATTERNS), SampleText.TEXT), SampleText.matches(matcher, SampleText.TEXT));
+    }
+
+    /*
+     * A pattern set with a tiny pattern and a long one is what the factory picks Aho-Corasick for.
+     */
+    @Test
+    void factoryPicksAhoCorasickForMixedLengths() {
+        Set<String> mixedLengths = new HashSet<String>(Arrays.asList("we", "it was the best of times, it was the worst of times"));
+        assertTrue(MatcherFactory.create(mixedLengths) instanceof AhoCorasick);
+    }
+
+    /*
+     * Patterns that differ only in case end at the same state of a case-insensitive automaton,
+     * and each of them must still be reported.
+     */
+    @Test
+    void reportsPatternsThatDifferOnlyInCase() {
+        Set<String> patterns = new HashSet<String>(Arrays.asList("Foo", "foo", "FOO", "oo"));
+        AhoCorasick matcher = new AhoCorasick(patterns, true);
+
+        Set<String> reported = new HashSet<String>();
+        matcher.search("a fOO", (patternId, start, end) -> {
+        	reported.add(matcher.getPattern(patternId) + "@" + start);
+        	return true;
+        });
+        assertEquals(new HashSet<String>(Arrays.asList("Foo@2", "foo@2", "FOO@2", "oo@3")), reported);
+        assertEquals(new RollingHash(patterns, true).countMatches("a fOO"), matcher.countMatches("a fOO"));
+    }
+
+    /*
+     * A text shorter than every pattern finds nothing, which is an empty map for every engine.
+     */
+    @Test
+    void shortTextGivesAnEmptyMap() {
+        assertEquals(Collections.emptyMap(), new AhoCorasick(SampleText.PATTERNS).multiplePatternMatchSearch("a"));
+        assertEquals(Collections.emptyMap(), new RollingHash(SampleText.PATTERNS).multiplePatternMatchSearch("a"));
+        assertEquals(Collections.emptyMap(), new RollingHash(SampleText.PATTERNS).parallelPatternMatchSearch("a"));
+    }
+}
@@ -0,0 +1,88 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+
+class ApproximateMatcherTest {
+
+    private static final String NOISY = "the quick brovn fox, the qu1ck brown f0x, THE QUICK BROWN FOX, rnodem";
+    private static final Set<String> PATTERNS = new HashSet<String>(Arrays.asList("quick brown fox", "modem"));
+
+    /*
+     * A pattern must be found with up to k characters wrong and no more.
+     */
+    @Test
+    void findsPatternsWithUpToKCharactersWrong() {
+        assertEquals(new HashSet<String>(Arrays.asList("4:19", "64:69")),
+        		SampleText.matches(new ApproximateMatcher(PATTERNS, 1), NOISY));
+
+        ApproximateMatcher twoWrong = new ApproximateMatcher(PATTERNS, 2, true);
+        assertEquals(new HashSet<String>(Arrays.asList("4:19", "25:40", "46:61", "64:69")), SampleText.matches(twoWrong, NOISY));
+        int fox = twoWrong.getPattern(0).equals("quick brown fox") ? 0 : 1;
+        assertEquals(2, twoWrong.mismatches(NOISY, 25, fox));
+    }
+
+    @Test
+    void noMismatchesIsAnExactSearch() {
+        ApproximateMatcher exact = new ApproximateMatcher(PATTERNS, 0);
+        assertEquals(0, exact.countMatches(NOISY));
+        assertEquals(1, exact.countMatches("a quick brown fox"));
+    }
+
+    /*
+     * A pattern no longer than k would match at every position.
+     */
+    @Test
+    void rejectsPatternNoLongerThanK() {
+        assertThrows(IllegalArgumentException.class, () -> new ApproximateMatcher(Collections.singleton("ab"), 2));
+    }
+
+    /*
+     * Against every position of a text, with pieces of it made noisy for patterns. Each match must be reported once,
+     * however many of its segments were found.
+     */
+    @Test
+    void agreesWithCheckingEveryPosition() {
+        String sample = SampleText.TEXT.repeat(60);
+        Random random = new Random(7);
+        Set<String> noisyPatterns = new HashSet<String>();
+        while (noisyPatterns.size() < 200) {
+        	int length = 6 + random.nextInt(7);
+        	int start = random.nextInt(SampleText.TEXT.length() - length);
+        	char[] chars = SampleText.TEXT.substring(start, start + length).toCharArray();
+        	chars[random.nextInt(length)] = '#';
+        	noisyPatterns.add(new String(chars));
+        }
+
+        for (int k = 1; k <= 2; k++) {
+        	ApproximateMatcher matcher = new ApproximateMatcher(noisyPatterns, k);
+        	List<String> reported = new ArrayList<String>();
+        	matcher.search(sample, (patternId, start, end) -> {
+        		reported.add(patternId + "@" + start);
+        		return true;
+        	});
+
+        	Set<String> naive = new HashSet<String>();
+        	for (int patternId = 0; patternId < matcher.getPatternCount(); patternId++) {
+        		int length = matcher.getPattern(patternId).length();
+        		for (int start = 0; start + length <= sample.length(); start++) {
+        			if (matcher.mismatches(sample, start, patternId) <= k)
+        				naive.add(patternId + "@" + start);
+        		}
+        	}
+        	assertEquals(naive.size(), reported.size(), k + " mismatches");
+        	assertEquals(naive, new HashSet<String>(reported), k + " mismatches");
+        }
+    }
+}
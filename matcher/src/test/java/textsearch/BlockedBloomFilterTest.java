@@ -0,0 +1,41 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+
+class BlockedBloomFilterTest {
+
+    @Test
+    void prefilteredIndexFindsTheSameMatches() {
+        PatternIndex index = new PatternIndex(SampleText.PATTERNS, HashScheme.MERSENNE_61, false, true);
+        assertEquals(SampleText.expectedMatches(SampleText.PATTERNS, SampleText.TEXT), new RollingHash(index).multiplePatternMatchSearch(SampleText.TEXT));
+    }
+
+    /*
+     * The filter must never turn away a key it holds, and must let thru few of the keys it does not hold.
+     * The keys come from a fixed seed, so the false positive count is the same on every run.
+     */
+    @Test
+    void neverTurnsAwayAKeyItHolds() {
+        Random random = new Random(18);
+        BlockedBloomFilter filter = new BlockedBloomFilter(10000);
+        long[] keys = new long[10000];
+        for (int i = 0; i < keys.length; i++) {
+        	keys[i] = random.nextLong() & PatternIndex.MERSENNE_61_PRIME;
+        	filter.add(keys[i]);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < keys.length; i++) {
+        	assertTrue(filter.mightContain(keys[i]), "turned away a key it holds: " + keys[i]);
+        	if (filter.mightContain(random.nextLong() & PatternIndex.MERSENNE_61_PRIME))
+        		falsePositives++;
+        }
+        assertTrue(falsePositives <= keys.length / 100, "false positive rate too high: " + falsePositives + " in " + keys.length);
+    }
+}
@@ -0,0 +1,73 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class CaseFoldingTest {
+
+    private static final Set<String> PATTERNS = new HashSet<String>(Arrays.asList("the", "age", "wisdom"));
+    private static final String TEXT = "It was THE Age of Wisdom, the AGE of foolishness";
+
+    @TempDir
+    Path directory;
+
+    /*
+     * The matched text, as it is spelled in the text.
+     */
+    private static Map<Integer, String> expected() {
+        Map<Integer, String> expected = new HashMap<Integer, String>();
+        expected.put(7, "THE");
+        expected.put(11, "Age");
+        expected.put(18, "Wisdom");
+        expected.put(26, "the");
+        expected.put(30, "AGE");
+        return expected;
+    }
+
+    @Test
+    void bothEnginesIgnoreCase() {
+        assertEquals(expected(), new RollingHash(PATTERNS, true).multiplePatternMatchSearch(TEXT));
+        assertEquals(expected(), new AhoCorasick(PATTERNS, true).multiplePatternMatchSearch(TEXT));
+    }
+
+    /*
+     * Patterns typed in mixed case, the way the GUI passes them on, with every hash scheme.
+     */
+    @Test
+    void everyHashSchemeIgnoresCase() {
+        Set<String> mixedCase = new HashSet<String>(Arrays.asList("The", "aGE", "WISDOM"));
+        for (HashScheme hashScheme : HashScheme.values())
+        	assertEquals(expected(), new RollingHash(mixedCase, hashScheme, true).multiplePatternMatchSearch(TEXT), hashScheme.name());
+        assertEquals(expected(), MatcherFactory.create(mixedCase, true).multiplePatternMatchSearch(TEXT));
+    }
+
+    /*
+     * The byte search reports the pattern, not the text, so the patterns are expected in lower case.
+     */
+    @Test
+    void fileSearchIgnoresCase() throws IOException {
+        Map<Integer, String> expectedPatterns = new HashMap<Integer, String>();
+        for (Entry<Integer, String> entry : expected().entrySet())
+        	expectedPatterns.put(entry.getKey(), entry.getValue().toLowerCase());
+
+        assertEquals(expectedPatterns, SampleText.searchFile(new RollingHash(PATTERNS, true), TEXT, directory));
+    }
+
+    @Test
+    void caseSensitiveSearchTellsTheCasesApart() {
+        assertEquals(1, new RollingHash(PATTERNS).countMatches(TEXT));
+        assertEquals(1, new AhoCorasick(PATTERNS).countMatches(TEXT));
+    }
+}
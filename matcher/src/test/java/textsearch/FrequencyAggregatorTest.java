@@ -0,0 +1,60 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+
+class FrequencyAggregatorTest {
+
+    /*
+     * Counting a stream of documents on several threads must give the same count for every pattern
+     * as searching them one by one, and top-K must rank them by count, then by id.
+     */
+    @Test
+    void countsWhatSearchingOneByOneCounts() {
+        RollingHash searcher = new RollingHash(SampleText.PATTERNS);
+        String text = SampleText.TEXT;
+        List<String> documents = new ArrayList<String>();
+        Random random = new Random(21);
+        for (int d = 0; d < 5000; d++) {
+        	int start = random.nextInt(text.length());
+        	documents.add(text.substring(start, start + random.nextInt(text.length() - start + 1)));
+        }
+
+        long[] expected = new long[searcher.getPatternCount()];
+        for (String document : documents) {
+        	searcher.search(document, (patternId, start, end) -> {
+        		expected[patternId]++;
+        		return true;
+        	});
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        PatternFrequencies frequencies;
+        try {
+        	frequencies = new FrequencyAggregator(searcher, 7).aggregate(documents.iterator(), pool);
+        } finally {
+        	pool.shutdown();
+        }
+
+        assertEquals(documents.size(), frequencies.getDocumentCount());
+        for (int patternId = 0; patternId < expected.length; patternId++)
+        	assertEquals(expected[patternId], frequencies.getCount(patternId), searcher.getPattern(patternId));
+        assertEquals(Arrays.stream(expected).sum(), frequencies.getTotal());
+
+        Integer[] ranked = new Integer[expected.length];
+        for (int patternId = 0; patternId < ranked.length; patternId++)
+        	ranked[patternId] = patternId;
+        Arrays.sort(ranked, (a, b) -> expected[a] != expected[b] ? Long.compare(expected[b], expected[a]) : Integer.compare(a, b));
+        assertArrayEquals(new int[] { ranked[0], ranked[1], ranked[2] }, frequencies.topPatternIds(3));
+        assertEquals(searcher.getPattern(ranked[0]), frequencies.topK(3).get(0).getKey());
+    }
+}
@@ -0,0 +1,221 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class GrepTest {
+
+    @TempDir
+    Path root;
+
+    private Path patternFile;
+    private final Map<Path, String> files = new HashMap<Path, String>();     //the text files of the tree and what is in them
+
+    /*
+     * A small tree with a file several chunks long, so matches cross chunk edges, an empty file and a binary file.
+     */
+    @BeforeEach
+    void writeTree() throws IOException {
+        patternFile = root.resolve("patterns.txt");
+        Files.write(patternFile, SampleText.PATTERNS, StandardCharsets.UTF_8);
+        Path logs = Files.createDirectories(root.resolve("logs/nested"));
+
+        StringBuilder big = new StringBuilder();
+        Random random = new Random(22);
+        while (big.length() < 3 * Grep.CHUNK_LENGTH)
+        	big.append(SampleText.TEXT, 0, random.nextInt(SampleText.TEXT.length())).append(random.nextBoolean() ? "\n" : " ");
+        files.put(root.resolve("logs/small.txt"), SampleText.TEXT);
+        files.put(logs.resolve("big.log"), big.toString());
+        files.put(logs.resolve("empty.log"), "");
+        for (Entry<Path, String> file : files.entrySet())
+        	Files.write(file.getKey(), file.getValue().getBytes(StandardCharsets.UTF_8));
+        Files.write(logs.resolve("binary.bin"), ("\0" + SampleText.TEXT).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * The lines grep should write for the matcher: path:line:offset:match, as a search of each whole file gives them,
+     * leaving out matches that take in a line break.
+     */
+    private Set<String> expectedLines(MultiPatternMatcher matcher) {
+        Set<String> expected = new HashSet<String>();
+        for (Entry<Path, String> file : files.entrySet()) {
+        	String content = file.getValue();
+        	int[] lineAt = new int[content.length() + 1];      //line of each position
+        	lineAt[0] = 1;
+        	for (int i = 0; i < content.length(); i++)
+        		lineAt[i + 1] = lineAt[i] + (content.charAt(i) == '\n' ? 1 : 0);
+        	matcher.search(content, (patternId, start, end) -> {
+        		if (content.substring((int) start, (int) end).indexOf('\n') < 0)
+        			expected.add(file.getKey() + ":" + lineAt[(int) start] + ":" + start + ":" + content.substring((int) start, (int) end));
+        		return true;
+        	});
+        }
+        return expected;
+    }
+
+    /*
+     * Runs grep and returns what it wrote to out, after checking the exit status.
+     */
+    private static String grep(int expectedStatus, String... args) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = Grep.run(args, new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+        assertEquals(expectedStatus, status, err.toString("UTF-8"));
+        return out.toString("UTF-8");
+    }
+
+    /*
+     * Every match must be reported once, with the line and offset a search of the whole file gives.
+     */
+    @Test
+    void findsEveryMatchOnce() throws IOException {
+        String out = grep(0, "--threads", "3", "-f", patternFile.toString(), root.resolve("logs").toString());
+        List<String> lines = Arrays.asList(out.split("\n"));
+
+        Set<String> expected = expectedLines(new RollingHash(SampleText.PATTERNS));
+        assertEquals(expected.size(), lines.size());
+        assertEquals(expected, new HashSet<String>(lines));
+    }
+
+    @Test
+    void findsEveryWholeWordOnce() throws IOException {
+        String out = grep(0, "-w", "--threads", "3", "-f", patternFile.toString(), root.resolve("logs").toString());
+        List<String> lines = Arrays.asList(out.split("\n"));
+
+        Set<String> expected = expectedLines(new TokenMatcher(SampleText.PATTERNS, CharClass.LETTERS_AND_DIGITS, Collections.<String>emptySet(), false));
+        assertEquals(expected.size(), lines.size());
+        assertEquals(expected, new HashSet<String>(lines));
+    }
+
+    /*
+     * A line break can be one of the wrong characters, but grep reports matches within one line only.
+     */
+    @Test
+    void findsEveryApproximateMatchOnce() throws IOException {
+        String out = grep(0, "--mismatches", "1", "--threads", "3", "-e", "wisdon", "-e", "belies", root.resolve("logs").toString());
+        List<String> lines = Arrays.asList(out.split("\n"));
+
+        Set<String> expected = expectedLines(new ApproximateMatcher(new HashSet<String>(Arrays.asList("wisdon", "belies")), 1));
+        assertEquals(expected.size(), lines.size());
+        assertEquals(expected, new HashSet<String>(lines));
+    }
+
+    /*
+     * A big file mapped in small segments, with characters of two, three and four bytes so that segment edges
+     * cut some of them, must give the same lines as a search of the whole file.
+     */
+    @Test
+    void findsEveryMatchAcrossMapSegments() throws IOException, InterruptedException {
+        String[] separators = { "\n", " \u00e9 ", " \u20ac ", " \uD83D\uDE00 " };
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(22);
+        while (text.length() < Grep.MAP_THRESHOLD)
+        	text.append(SampleText.TEXT, 0, random.nextInt(SampleText.TEXT.length())).append(separators[random.nextInt(separators.length)]);
+        Path file = Files.createDirectories(root.resolve("segmented")).resolve("multibyte.txt");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        files.clear();
+        files.put(file, text.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int maxPatternLength = SampleText.PATTERNS.stream().mapToInt(String::length).max().getAsInt();
+        Grep grep = new Grep(new RollingHash(SampleText.PATTERNS), maxPatternLength, Grep.Format.LINES, 1, 1, false, false, 4099);
+        grep.search(Collections.singletonList(file.getParent()), new PrintStream(out, true, "UTF-8"), System.err);
+        List<String> lines = Arrays.asList(out.toString("UTF-8").split("\n"));
+
+        assertEquals(0, grep.getErrorCount());
+        Set<String> expected = expectedLines(new RollingHash(SampleText.PATTERNS));
+        assertEquals(expected.size(), lines.size());
+        assertEquals(expected, new HashSet<String>(lines));
+    }
+
+    /*
+     * When the search stage dies the readers are left waiting on a full queue. The search must give up
+     * with an error instead of waiting for them.
+     */
+    @Test
+    @Timeout(60)
+    void stopsWhenTheSearchFails() throws IOException, InterruptedException {
+        for (int f = 0; f < 100; f++)
+        	Files.write(root.resolve("logs/copy" + f + ".txt"), SampleText.TEXT.getBytes(StandardCharsets.UTF_8));
+        MultiPatternMatcher failing = new MultiPatternMatcher() {
+        	@Override
+        	public void search(CharSequence text, MatchSink sink) {
+        		throw new IllegalStateException("matcher failed");
+        	}
+
+        	@Override
+        	public String getPattern(int patternId) {
+        		return "wisdom";
+        	}
+
+        	@Override
+        	public int getPatternCount() {
+        		return 1;
+        	}
+        };
+
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Grep grep = new Grep(failing, 6, Grep.Format.LINES, 1, 1, false, false);
+        grep.search(Collections.singletonList(root.resolve("logs")), new PrintStream(new ByteArrayOutputStream()), new PrintStream(err, true, "UTF-8"));
+
+        assertEquals(1, grep.getErrorCount());
+        assertTrue(err.toString("UTF-8").contains("matcher failed"), err.toString("UTF-8"));
+    }
+
+    @Test
+    void countsMatchesPerFile() throws IOException {
+        Path small = root.resolve("logs/small.txt");
+        assertEquals(small + ":1\n", grep(0, "-c", "-e", "wisdom", small.toString()));
+    }
+
+    /*
+     * An index is searched the way it was compiled, so -i is refused for a case-sensitive one.
+     */
+    @Test
+    void ignoreCaseNeedsAnIndexThatIgnoresCase() throws IOException {
+        Path small = root.resolve("logs/small.txt");
+        Path caseSensitive = root.resolve("case-sensitive.idx");
+        new PatternIndex(Collections.singleton("WISDOM")).save(caseSensitive);
+        grep(2, "-i", "--index", caseSensitive.toString(), small.toString());
+
+        Path caseInsensitive = root.resolve("case-insensitive.idx");
+        new PatternIndex(Collections.singleton("WISDOM"), HashScheme.MERSENNE_61, true).save(caseInsensitive);
+        assertEquals(small + ":1\n", grep(0, "-c", "-i", "--index", caseInsensitive.toString(), small.toString()));
+    }
+
+    @Test
+    void writesJson() throws IOException {
+        String out = grep(0, "--json", "-i", "-e", "WISDOM", root.resolve("logs/small.txt").toString());
+
+        int offset = SampleText.TEXT.indexOf("wisdom");
+        long line = 1 + SampleText.TEXT.substring(0, offset).chars().filter(c -> c == '\n').count();
+        assertTrue(out.contains("\"line\":" + line + ",\"offset\":" + offset + ",\"length\":6,\"match\":\"wisdom\"}"), out);
+    }
+
+    @Test
+    void exitsWithOneWhenNothingMatches() throws IOException {
+        assertEquals("", grep(1, "-e", "nowhere to be found", root.resolve("logs").toString()));
+    }
+}
@@ -0,0 +1,34 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+
+class HashSchemeTest {
+
+    @Test
+    void everySchemeFindsTheSameMatches() {
+        for (HashScheme hashScheme : HashScheme.values()) {
+        	RollingHash searcher = new RollingHash(SampleText.PATTERNS, hashScheme);
+        	assertEquals(SampleText.expectedMatches(SampleText.PATTERNS, SampleText.TEXT),
+        			searcher.multiplePatternMatchSearch(SampleText.TEXT), hashScheme.toString());
+        }
+    }
+
+    /*
+     * The seed is fixed, like BenchmarkData's, so a failure names a modulus that can be drawn again.
+     */
+    @Test
+    void randomModuliArePrime() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100; i++) {
+        	long prime = PatternIndex.randomPrime(random);
+        	assertTrue(BigInteger.valueOf(prime).isProbablePrime(100) && prime < 1L << 31, "not a 31-bit prime: " + prime);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+
+class LatencyHistogramTest {
+
+    /*
+     * A percentile is the top of its bucket, so it is at least the exact one and at most 1/16 above it.
+     */
+    @Test
+    void percentilesAreWithinABucketOfTheExactOnes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100000; value++)
+        	histogram.record(value);
+
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000, histogram.getMax());
+        for (double percent : new double[] { 50, 90, 99, 99.9 }) {
+        	long exact = (long) (percent * 1000);
+        	long estimate = histogram.getPercentile(percent);
+        	assertTrue(estimate >= exact && estimate <= exact + exact / 16, "p" + percent + " is " + estimate + ", expected about " + exact);
+        }
+    }
+
+    @Test
+    void everyValueFallsInsideItsBucket() {
+        for (long value = 0; value < 1 << 20; value += 1 + value / 100) {
+        	int bucket = LatencyHistogram.bucket(value);
+        	assertTrue(value <= LatencyHistogram.bucketTop(bucket), "bucket of " + value);
+        	assertTrue(bucket == 0 || value > LatencyHistogram.bucketTop(bucket - 1), "bucket of " + value);
+        }
+    }
+
+    @Test
+    void emptyHistogramHasNoPercentiles() {
+        assertEquals(0, new LatencyHistogram().getPercentile(99));
+    }
+}
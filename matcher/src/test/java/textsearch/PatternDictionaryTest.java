@@ -0,0 +1,116 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class PatternDictionaryTest {
+
+    @TempDir
+    Path directory;
+
+    /*
+     * After every change the dictionary must find the same matches as an index compiled from scratch for the same
+     * patterns, while a search on an older generation still finds the old ones. The changes add a new shortest pattern,
+     * a pattern too long for any band, drop the only pattern of a band, and add a removed pattern back.
+     */
+    @Test
+    void findsWhatAFreshIndexFinds() throws IOException {
+        PatternDictionary dictionary = new PatternDictionary(SampleText.PATTERNS);
+        RollingHash searcher = new RollingHash(dictionary);
+        Set<String> expectedSet = new HashSet<String>(SampleText.PATTERNS);
+        Map<Integer, String> before = searcher.multiplePatternMatchSearch(SampleText.TEXT);
+        PatternIndex oldGeneration = dictionary.getIndex();
+
+        String[][] changes = {
+        	{"+we"}, {"-the"}, {"+it was the worst of times"}, {"-times", "+nothing"}, {"-we"}, {"+the", "+us"}, {"-wisdom", "-belief", "+e"}};
+        for (String[] change : changes) {
+        	List<String> added = new ArrayList<String>();
+        	List<String> removed = new ArrayList<String>();
+        	for (String step : change)
+        		(step.charAt(0) == '+' ? added : removed).add(step.substring(1));
+        	dictionary.update(added, removed);
+        	expectedSet.addAll(added);
+        	expectedSet.removeAll(removed);
+
+        	Map<Integer, String> expected = SampleText.expectedMatches(expectedSet, SampleText.TEXT);
+        	assertEquals(expected, searcher.multiplePatternMatchSearch(SampleText.TEXT), "after " + Arrays.toString(change));
+        	assertEquals(expected, SampleText.searchFile(searcher, SampleText.TEXT, directory), "file search after " + Arrays.toString(change));
+        	assertEquals(expectedSet.size(), dictionary.size());
+        }
+
+        assertEquals(before, new RollingHash(oldGeneration).multiplePatternMatchSearch(SampleText.TEXT));
+    }
+
+    /*
+     * Patterns added one at a time are appended to arenas the generations share, so an old generation must still
+     * find just its own patterns, and the arenas are only copied when they double.
+     */
+    @Test
+    void generationsShareTheArenas() {
+        PatternDictionary dictionary = new PatternDictionary(SampleText.PATTERNS);
+        List<PatternIndex> generations = new ArrayList<PatternIndex>();
+        List<Set<String>> patternSets = new ArrayList<Set<String>>();
+        Set<String> patternSet = new HashSet<String>(SampleText.PATTERNS);
+        Set<char[]> arenas = Collections.newSetFromMap(new IdentityHashMap<char[], Boolean>());
+
+        String[] words = SampleText.TEXT.split("[^A-Za-z]+");
+        for (int w = 0; w < 200; w++) {
+        	String word = words[w % words.length] + (w < words.length ? "" : w);
+        	dictionary.addPattern(word);
+        	patternSet.add(word);
+        	generations.add(dictionary.getIndex());
+        	patternSets.add(new HashSet<String>(patternSet));
+        	arenas.add(dictionary.getIndex().patternChars.array());
+        }
+
+        for (int g = 0; g < generations.size(); g += 20)
+        	assertEquals(SampleText.expectedMatches(patternSets.get(g), SampleText.TEXT), new RollingHash(generations.get(g)).multiplePatternMatchSearch(SampleText.TEXT));
+        assertTrue(arenas.size() <= 8, arenas.size() + " arenas");
+    }
+
+    @Test
+    void loadedIndexKeepsTheChanges() throws IOException {
+        PatternDictionary dictionary = new PatternDictionary(SampleText.PATTERNS);
+        dictionary.update(Arrays.asList("nothing"), Arrays.asList("times"));
+
+        Path file = directory.resolve("dictionary.idx");
+        dictionary.getIndex().save(file);
+        PatternDictionary loaded = new PatternDictionary(PatternIndex.load(file));
+
+        assertEquals(SampleText.PATTERNS.size(), loaded.size());
+        assertTrue(loaded.contains("nothing"));
+        assertFalse(loaded.contains("times"));
+    }
+
+    /*
+     * A dictionary made from a prefiltered index keeps the prefilter thru its changes.
+     */
+    @Test
+    void prefilteredDictionaryFindsWhatAFreshIndexFinds() {
+        PatternDictionary dictionary = new PatternDictionary(new PatternIndex(SampleText.PATTERNS, HashScheme.MERSENNE_61, false, true));
+        dictionary.removePattern("wisdom");
+        dictionary.addPattern("we");
+
+        Set<String> changedSet = new HashSet<String>(SampleText.PATTERNS);
+        changedSet.remove("wisdom");
+        changedSet.add("we");
+        assertTrue(dictionary.getIndex().hasPrefilter());
+        assertEquals(SampleText.expectedMatches(changedSet, SampleText.TEXT), new RollingHash(dictionary).multiplePatternMatchSearch(SampleText.TEXT));
+    }
+}
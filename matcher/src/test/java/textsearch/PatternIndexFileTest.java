@@ -0,0 +1,121 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class PatternIndexFileTest {
+
+    @TempDir
+    Path directory;
+
+    /*
+     * An index saved and loaded again must find the same matches, in chars and in bytes.
+     */
+    @Test
+    void loadedIndexFindsTheSameMatches() throws IOException {
+        checkSaveAndLoad(new PatternIndex(SampleText.PATTERNS));
+    }
+
+    @Test
+    void loadedIndexWithPrefilterFindsTheSameMatches() throws IOException {
+        checkSaveAndLoad(new PatternIndex(SampleText.PATTERNS, HashScheme.MERSENNE_61, false, true));
+    }
+
+    @Test
+    void everyHashSchemeIsSavedAndLoaded() throws IOException {
+        for (HashScheme hashScheme : HashScheme.values())
+        	checkSaveAndLoad(new PatternIndex(SampleText.PATTERNS, hashScheme, true));
+    }
+
+    /*
+     * Mapping regions of 64 bytes hold at most a few arrays each, so the reader has to move from region to region
+     * the way it does for a file bigger than one mapping can hold.
+     */
+    @Test
+    void indexIsReadAcrossManyRegions() throws IOException {
+        Random random = new Random(15);
+        Set<String> patternSet = new HashSet<String>(SampleText.PATTERNS);
+        for (int i = 0; i < 1000; i++)
+        	patternSet.add(Integer.toString(random.nextInt(1 << 20), 36));
+        PatternIndex index = new PatternIndex(patternSet, HashScheme.MERSENNE_61, false, true);
+        Path file = directory.resolve("regions.idx");
+        index.save(file);
+
+        PatternIndex loaded = PatternIndexFile.read(file, false, 64);
+        String text = SampleText.TEXT + String.join(" ", patternSet);
+        assertEquals(new RollingHash(index).findAll(text, new MatchCollector()).size(),
+        		new RollingHash(loaded).findAll(text, new MatchCollector()).size());
+        assertEquals(SampleText.expectedMatches(patternSet, text), new RollingHash(loaded).multiplePatternMatchSearch(text));
+    }
+
+    /*
+     * A dictionary started from a mapped index copies what it changes onto the heap and leaves the file as it is.
+     */
+    @Test
+    void loadedIndexCanBeChanged() throws IOException {
+        Path file = directory.resolve("dictionary.idx");
+        new PatternIndex(SampleText.PATTERNS).save(file);
+        PatternDictionary dictionary = new PatternDictionary(PatternIndex.load(file));
+        dictionary.update(Arrays.asList("we", "nothing"), Arrays.asList("the"));
+
+        Set<String> changedSet = new HashSet<String>(SampleText.PATTERNS);
+        changedSet.addAll(Arrays.asList("we", "nothing"));
+        changedSet.remove("the");
+        assertEquals(SampleText.expectedMatches(changedSet, SampleText.TEXT), new RollingHash(dictionary).multiplePatternMatchSearch(SampleText.TEXT));
+        assertEquals(SampleText.expectedMatches(SampleText.PATTERNS, SampleText.TEXT),
+        		new RollingHash(PatternIndex.load(file)).multiplePatternMatchSearch(SampleText.TEXT));
+    }
+
+    @Test
+    void fileThatIsNotAnIndexIsRefused() throws IOException {
+        Path file = directory.resolve("text.idx");
+        Files.write(file, SampleText.TEXT.getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> PatternIndex.load(file));
+    }
+
+    /*
+     * The index is loaded in place, loaded onto the heap, and saved again from the mapped one,
+     * and every one of them must find the same matches.
+     */
+    private void checkSaveAndLoad(PatternIndex index) throws IOException {
+        Path file = Files.createTempFile(directory, "rollinghash", ".idx");
+        index.save(file);
+        PatternIndex loaded = PatternIndex.load(file);
+        assertFalse(loaded.patternChars.hasArray());
+        assertTrue(loaded.bands[0].patternHashTable instanceof MappedPrefixTable);
+        PatternIndex copied = PatternIndex.load(file, true);
+        assertTrue(copied.patternChars.hasArray());
+        assertTrue(copied.bands[0].patternHashTable instanceof PrefixHashTable);
+        Path savedAgain = Files.createTempFile(directory, "rollinghash", ".idx");
+        loaded.save(savedAgain);
+        assertTrue(Arrays.equals(Files.readAllBytes(file), Files.readAllBytes(savedAgain)));
+
+        Map<Integer, String> expected = new RollingHash(index).multiplePatternMatchSearch(SampleText.TEXT);
+        assertEquals(SampleText.expectedMatches(SampleText.PATTERNS, SampleText.TEXT), expected);
+        for (PatternIndex other : Arrays.asList(loaded, copied)) {
+        	RollingHash searcher = new RollingHash(other);
+        	assertEquals(index.getPatternCount(), other.getPatternCount());
+        	for (int patternId = 0; patternId < index.getPatternCount(); patternId++)
+        		assertEquals(index.getPattern(patternId), other.getPattern(patternId));
+
+        	assertEquals(expected, searcher.multiplePatternMatchSearch(SampleText.TEXT));
+        	assertEquals(expected, SampleText.searchFile(searcher, SampleText.TEXT, directory));
+        }
+    }
+}
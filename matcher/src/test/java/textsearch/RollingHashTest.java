@@ -0,0 +1,171 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class RollingHashTest {
+
+    private final RollingHash searcher = new RollingHash(SampleText.PATTERNS);
+    private final Map<Integer, String> expected = SampleText.expectedMatches(SampleText.PATTERNS, SampleText.TEXT);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsEveryPattern() {
+        assertEquals(expected, searcher.multiplePatternMatchSearch(SampleText.TEXT));
+        assertEquals(expected, searcher.getResults());
+    }
+
+    /*
+     * "age" and "agenda" have the same shortened hashCode and must both be verified,
+     * and the short pattern must not stop the long one from being found.
+     */
+    @Test
+    void sharedPrefixPatterns() {
+        Set<String> patternSet = new HashSet<String>(Arrays.asList("age", "agenda", "a tale of two cities"));
+        String text = "the agenda of the age is a tale of two cities";
+
+        Map<Integer, String> results = new RollingHash(patternSet).multiplePatternMatchSearch(text);
+        assertEquals("agenda", results.get(4));
+        assertEquals("age", results.get(18));
+        assertEquals("a tale of two cities", results.get(25));
+    }
+
+    /*
+     * A buffer much smaller than the text, so many matches cross a buffer edge.
+     */
+    @Test
+    void streamingSearch() throws IOException {
+        Map<Integer, String> streamed = new HashMap<Integer, String>();
+        long searched = searcher.search(new StringReader(SampleText.TEXT), 7, (patternId, start, end) -> {
+        	streamed.put((int) start, searcher.getPattern(patternId));
+        	return true;
+        });
+
+        assertEquals(SampleText.TEXT.length(), searched);
+        assertEquals(expected, streamed);
+    }
+
+    /*
+     * The text is ASCII, so byte offsets are the same as char offsets.
+     */
+    @Test
+    void fileSearch() throws IOException {
+        assertEquals(expected, SampleText.searchFile(searcher, SampleText.TEXT, directory));
+    }
+
+    /*
+     * Chunks of 10 characters are much shorter than the text, so many matches cross a chunk edge.
+     */
+    @Test
+    void parallelSearch() {
+        assertEquals(expected, searcher.parallelPatternMatchSearch(SampleText.TEXT, 10, ForkJoinPool.commonPool()));
+        assertEquals(expected, searcher.parallelPatternMatchSearch(SampleText.TEXT));
+    }
+
+    /*
+     * Each thread has its own RollingHash over the shared index and must find the same matches.
+     */
+    @Test
+    void sharedIndex() throws InterruptedException {
+        PatternIndex index = searcher.getIndex();
+        List<Thread> threads = new ArrayList<Thread>();
+        List<Map<Integer, String>> found = Collections.synchronizedList(new ArrayList<Map<Integer, String>>());
+
+        for (int t = 0; t < 4; t++) {
+        	Thread thread = new Thread(() -> {
+        		RollingHash threadSearcher = new RollingHash(index);
+        		for (int round = 0; round < 100; round++)
+        			found.add(threadSearcher.multiplePatternMatchSearch(SampleText.TEXT));
+        	});
+        	threads.add(thread);
+        	thread.start();
+        }
+        for (Thread thread : threads)
+        	thread.join();
+
+        assertEquals(400, found.size());
+        for (Map<Integer, String> threadResults : found)
+        	assertEquals(expected, threadResults);
+    }
+
+    /*
+     * The collector, count-only and first-hit modes. "age" and "agenda" overlap, and the collector must keep both.
+     */
+    @Test
+    void searchModes() {
+        RollingHash overlapping = new RollingHash(new HashSet<String>(Arrays.asList("age", "agenda")));
+        String text = "the agenda of the age";
+
+        assertEquals(3, overlapping.findAll(text, new MatchCollector()).size());
+        assertEquals(3, overlapping.countMatches(text));
+        assertTrue(overlapping.containsAny(text));
+        assertFalse(overlapping.containsAny("nothing to see here"));
+    }
+
+    /*
+     * Every match is a verified candidate, and every window is counted once per band.
+     */
+    @Test
+    void metrics() {
+        SearchMetrics metrics = new SearchMetrics();
+        long count = new RollingHash(searcher.getIndex(), metrics).countMatches(SampleText.TEXT);
+
+        assertEquals(1, metrics.getSearches());
+        assertEquals(count, metrics.getMatches());
+        assertEquals(SampleText.TEXT.length(), metrics.getCharactersSearched());
+        assertTrue(metrics.getWindowsScanned() >= SampleText.TEXT.length() - searcher.getMaxPatternLength() + 1, metrics.toString());
+    }
+
+    /*
+     * A long text that none of the patterns occur in must allocate nothing per character, only the empty result map,
+     * and candidates are verified against the pattern arena in place, so they allocate nothing per match either.
+     */
+    @Test
+    void scanLoopDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        char[] chars = new char[1000000];
+        Arrays.fill(chars, '#');
+        String text = new String(chars);
+
+        //warm up so the scan loop is compiled before it is measured
+        for (int i = 0; i < 20; i++)
+        	searcher.multiplePatternMatchSearch(text);
+
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        searcher.multiplePatternMatchSearch(text);
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(allocated <= 1024, "scan loop allocates per character: " + allocated + " bytes");
+
+        //here every seventh window is a hash hit
+        String words = "wisdom ".repeat(100000);
+        for (int i = 0; i < 20; i++)
+        	searcher.countMatches(words);
+
+        before = threadBean.getCurrentThreadAllocatedBytes();
+        assertEquals(100000, searcher.countMatches(words));
+        allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(allocated <= 1024, "verification allocates per match: " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,82 @@
+package textsearch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/*
+ * This is the class that holds the text and patterns the tests search, the ones the demo in RollingHash.main uses,
+ * and the helpers that work out what a search should find without using any of the engines.
+ */
+final class SampleText {
+
+    static final String TEXT = new StringBuilder()
+    		.append("It was the best of times, it was the worst of times,\n")
+    		.append("it was the age of wisdom, it was the age of foolishness,\n")
+    		.append("it was the epoch of belief, it was the epoch of incredulity,\n")
+    		.append("it was the season of Light, it was the season of Darkness,\n")
+    		.append("it was the spring of hope, it was the winter of despair,\n")
+    		.append("we had everything before us, we had nothing before us")
+    		.toString().toLowerCase();
+
+    static final Set<String> PATTERNS = Collections.unmodifiableSet(new HashSet<String>(
+    		Arrays.asList("times", "wisdom", "belief", "before", "the", "age")));
+
+    private SampleText() {
+    }
+
+    /*
+     * The matches multiplePatternMatchSearch should return, found with String.startsWith at every position:
+     * the location of each match and the pattern found there, the longest one where several match at one location.
+     */
+    static Map<Integer, String> expectedMatches(Set<String> patternSet, String text) {
+        Map<Integer, String> expected = new HashMap<Integer, String>();
+        for (int start = 0; start < text.length(); start++) {
+        	for (String pattern : patternSet) {
+        		if (pattern.length() > 0 && text.startsWith(pattern, start)) {
+        			String previous = expected.get(start);
+        			if (previous == null || previous.length() < pattern.length())
+        				expected.put(start, pattern);
+        		}
+        	}
+        }
+        return expected;
+    }
+
+    /*
+     * Every match of a search as "start:end".
+     */
+    static Set<String> matches(MultiPatternMatcher matcher, CharSequence text) {
+        Set<String> found = new HashSet<String>();
+        matcher.search(text, (patternId, start, end) -> {
+        	found.add(start + ":" + end);
+        	return true;
+        });
+        return found;
+    }
+
+    /*
+     * Writes the text to a file in directory and searches it with the memory mapped byte search.
+     * Segments of 5 bytes are much smaller than the text, so many matches cross a segment boundary.
+     * @return the location of each match and the pattern found there
+     */
+    static Map<Integer, String> searchFile(RollingHash searcher, String text, Path directory) throws IOException {
+        Path file = Files.createTempFile(directory, "rollinghash", ".txt");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+
+        Map<Integer, String> found = new HashMap<Integer, String>();
+        searcher.searchFile(file, 5, (patternId, start, end) -> {
+        	found.put((int) start, searcher.getPattern(patternId));
+        	return true;
+        });
+        return found;
+    }
+}
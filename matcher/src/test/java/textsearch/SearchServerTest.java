@@ -0,0 +1,180 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+class SearchServerTest {
+
+    private SearchServer server;
+    private HttpClient client;
+    private String base;
+
+    @BeforeEach
+    void startServer() throws IOException, InterruptedException {
+        server = new SearchServer(0, 2, SearchServer.DEFAULT_MAX_BATCH_SIZE);
+        server.start();
+        client = HttpClient.newHttpClient();
+        base = "http://localhost:" + server.getPort();
+
+        HttpResponse<String> registered = send(HttpRequest.newBuilder(URI.create(base + "/patterns/tale"))
+        		.PUT(HttpRequest.BodyPublishers.ofString(String.join("\n", SampleText.PATTERNS))).build());
+        assertEquals(200, registered.statusCode(), registered.body());
+        assertTrue(registered.body().contains("\"patterns\":" + SampleText.PATTERNS.size()), registered.body());
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest search(String name, String document) {
+        return HttpRequest.newBuilder(URI.create(base + "/search/" + name)).POST(HttpRequest.BodyPublishers.ofString(document)).build();
+    }
+
+    /*
+     * Concurrent searches of a registered set must give the same counts as a search in process,
+     * and the stats must count every request.
+     */
+    @Test
+    void concurrentSearchesCountWhatTheSearcherCounts() throws IOException, InterruptedException {
+        RollingHash searcher = new RollingHash(SampleText.PATTERNS);
+        List<CompletableFuture<HttpResponse<String>>> answers = new ArrayList<CompletableFuture<HttpResponse<String>>>();
+        List<String> expected = new ArrayList<String>();
+        Random random = new Random(23);
+        for (int r = 0; r < 200; r++) {
+        	String document = SampleText.TEXT.substring(random.nextInt(SampleText.TEXT.length()));
+        	expected.add("{\"count\":" + searcher.countMatches(document) + "}");
+        	answers.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base + "/search/tale?count=true"))
+        			.POST(HttpRequest.BodyPublishers.ofString(document)).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (int r = 0; r < answers.size(); r++) {
+        	HttpResponse<String> answer = answers.get(r).join();
+        	assertEquals(200, answer.statusCode());
+        	assertEquals(expected.get(r), answer.body());
+        }
+
+        String stats = send(HttpRequest.newBuilder(URI.create(base + "/stats")).build()).body();
+        assertTrue(stats.contains("\"requests\":200"), stats);
+    }
+
+    /*
+     * With one search thread the requests pile up and are searched in batches. The documents are cut in the middle
+     * of words, so a batch that let a match run into the next document would give extra matches, and
+     * every answer must be what a search of its document alone gives, for a substring and a whole-word set.
+     */
+    @Test
+    void batchedSearchesAnswerEachDocumentAlone() throws IOException, InterruptedException {
+        SearchServer batching = new SearchServer(0, 1, SearchServer.DEFAULT_MAX_BATCH_SIZE);
+        batching.start();
+        try {
+        	batching.register("tale", SampleText.PATTERNS, false, false);
+        	batching.register("words", SampleText.PATTERNS, false, true);
+        	Map<String, MultiPatternMatcher> matchers = new HashMap<String, MultiPatternMatcher>();
+        	matchers.put("tale", MatcherFactory.create(SampleText.PATTERNS));
+        	matchers.put("words", new TokenMatcher(SampleText.PATTERNS, CharClass.LETTERS_AND_DIGITS, Collections.<String>emptySet(), false));
+
+        	List<CompletableFuture<HttpResponse<String>>> answers = new ArrayList<CompletableFuture<HttpResponse<String>>>();
+        	List<String> expected = new ArrayList<String>();
+        	Random random = new Random(23);
+        	for (int r = 0; r < 300; r++) {
+        		int start = random.nextInt(SampleText.TEXT.length());
+        		String document = SampleText.TEXT.substring(start, start + random.nextInt(SampleText.TEXT.length() - start + 1));
+        		String name = r % 2 == 0 ? "tale" : "words";
+        		boolean countOnly = r % 3 == 0;
+        		expected.add(answer(matchers.get(name), document, countOnly));
+        		answers.add(client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + batching.getPort() + "/search/" + name
+        				+ (countOnly ? "?count=true" : ""))).POST(HttpRequest.BodyPublishers.ofString(document)).build(),
+        				HttpResponse.BodyHandlers.ofString()));
+        	}
+        	for (int r = 0; r < answers.size(); r++)
+        		assertEquals(expected.get(r), answers.get(r).join().body(), "request " + r);
+        } finally {
+        	batching.stop(0);
+        }
+    }
+
+    /*
+     * The answer the server should give for the document, built from a search of the document alone.
+     */
+    private static String answer(MultiPatternMatcher matcher, String document, boolean countOnly) {
+        MatchCollector collector = matcher.findAll(document, new MatchCollector());
+        StringBuilder json = new StringBuilder("{\"count\":").append(collector.size());
+        if (countOnly)
+        	return json.append('}').toString();
+        json.append(",\"matches\":[");
+        for (int m = 0; m < collector.size(); m++) {
+        	if (m > 0)
+        		json.append(',');
+        	json.append("{\"pattern\":");
+        	Json.appendString(json, matcher.getPattern(collector.getPatternId(m)));
+        	json.append(",\"start\":").append(collector.getStart(m)).append(",\"end\":").append(collector.getEnd(m)).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /*
+     * The documents of a batch are searched as one text with a line break between each two. A pattern with
+     * a line break in it would match across two documents there, and that match must not be given to either.
+     */
+    @Test
+    void batchSearchKeepsMatchesInsideTheirDocument() {
+        Set<String> patterns = new HashSet<String>(Arrays.asList("wisdom", "s\nd", "age", "it"));
+        MultiPatternMatcher matcher = MatcherFactory.create(patterns);
+        List<SearchServer.SearchRequest> batch = new ArrayList<SearchServer.SearchRequest>();
+        for (String document : new String[] { "it was the age of wis", "dom, it was", "", "s", "d age", "wisdom" })
+        	batch.add(new SearchServer.SearchRequest(document, batch.size() == 1, 0));
+
+        SearchServer.BatchSearch batchSearch = new SearchServer.BatchSearch(batch.size());
+        batchSearch.search(matcher, batch);
+        for (int d = 0; d < batch.size(); d++) {
+        	MatchCollector alone = matcher.findAll(batch.get(d).document, new MatchCollector());
+        	assertEquals(alone.size(), batchSearch.counts[d], "document " + d);
+        	if (!batchSearch.countOnly[d])
+        		assertEquals(SampleText.matches(matcher, batch.get(d).document), matches(batchSearch.collectors[d]), "document " + d);
+        }
+    }
+
+    private static Set<String> matches(MatchCollector collector) {
+        Set<String> found = new HashSet<String>();
+        for (int m = 0; m < collector.size(); m++)
+        	found.add(collector.getStart(m) + ":" + collector.getEnd(m));
+        return found;
+    }
+
+    @Test
+    void reportsEveryMatch() throws IOException, InterruptedException {
+        String found = send(search("tale", "the age of wisdom")).body();
+        assertTrue(found.startsWith("{\"count\":3,"), found);
+        assertTrue(found.contains("{\"pattern\":\"wisdom\",\"start\":11,\"end\":17}"), found);
+    }
+
+    @Test
+    void unknownSetIsNotFound() throws IOException, InterruptedException {
+        assertEquals(404, send(search("nothing", "text")).statusCode());
+    }
+}
@@ -0,0 +1,77 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+
+class SkipScanTest {
+
+    /*
+     * A text where matches can start at few places: runs of digits between pieces of the sample text.
+     */
+    private static String sparseText() {
+        StringBuilder sparse = new StringBuilder();
+        Random random = new Random(19);
+        while (sparse.length() < 200000) {
+        	for (int k = random.nextInt(300); k > 0; k--)
+        		sparse.append((char) ('0' + random.nextInt(10)));
+        	sparse.append(random.nextBoolean() ? " It was the AGE of Wisdom " : SampleText.TEXT.substring(0, random.nextInt(SampleText.TEXT.length())));
+        }
+        return sparse.toString();
+    }
+
+    /*
+     * The skip-scan must find the same matches as the full scan, over a StringBuilder, a String,
+     * an array-backed CharBuffer and a Reader, with and without case folding.
+     */
+    @Test
+    void findsTheSameMatchesAsTheFullScan() throws IOException {
+        String sparse = sparseText();
+        for (boolean caseInsensitive : new boolean[] { false, true }) {
+        	PatternIndex index = new PatternIndex(SampleText.PATTERNS, HashScheme.MERSENNE_61, caseInsensitive);
+        	RollingHash skipping = new RollingHash(index, null, true);
+        	Set<String> expected = SampleText.matches(new RollingHash(index), sparse);
+
+        	for (CharSequence view : new CharSequence[] { new StringBuilder(sparse), sparse, CharBuffer.wrap(sparse.toCharArray()) })
+        		assertEquals(expected, SampleText.matches(skipping, view), view.getClass().getSimpleName());
+
+        	Set<String> streamed = new HashSet<String>();
+        	skipping.search(new StringReader(sparse), 1000, (patternId, start, end) -> {
+        		streamed.add(start + ":" + end);
+        		return true;
+        	});
+        	assertEquals(expected, streamed, "Reader");
+        }
+    }
+
+    /*
+     * The lookup table filter, which the search uses when the vector module is missing, must stop at the same
+     * positions as a plain loop. So must the filter the index makes, which is the vectorized one when the module is there.
+     */
+    @Test
+    void filtersStopAtEveryFirstCharacter() {
+        String sparse = sparseText();
+        PatternIndex index = new PatternIndex(SampleText.PATTERNS);
+        FirstCharFilter created = index.getFirstCharFilter();
+        FirstCharFilter scalar = new FirstCharFilter(created.firstChars);
+        char[] chars = sparse.toCharArray();
+
+        for (int from = 0; from < chars.length; ) {
+        	int expected = from;
+        	while (expected < chars.length && !scalar.member[chars[expected]])
+        		expected++;
+        	assertEquals(expected, scalar.next(sparse, from, chars.length));
+        	assertEquals(expected, scalar.next(chars, from, chars.length));
+        	assertEquals(expected, created.next(chars, from, chars.length), "from " + from);
+        	from = expected + 1;
+        }
+    }
+}
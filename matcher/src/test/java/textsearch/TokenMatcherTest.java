@@ -0,0 +1,61 @@
+package textsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+
+class TokenMatcherTest {
+
+    private static final String TEXT = "There, the theme of the THEORY: bathe at the-end, in theory 42 and 420.";
+    private static final Set<String> PATTERNS = new HashSet<String>(Arrays.asList("the", "theory", "42", "end", "at"));
+
+    private static Set<String> matches(TokenMatcher matcher, int from, int to) {
+        Set<String> found = new HashSet<String>();
+        matcher.search(TEXT, from, to, (patternId, start, end) -> {
+        	found.add(start + ":" + end);
+        	return true;
+        });
+        return found;
+    }
+
+    /*
+     * A pattern must only match whole tokens, and a text searched a range at a time must give the same matches as a whole.
+     */
+    @Test
+    void matchesWholeTokensOnly() {
+        TokenMatcher matcher = new TokenMatcher(PATTERNS, CharClass.LETTERS_AND_DIGITS, Collections.<String>emptySet(), false);
+        Set<String> expected = new HashSet<String>(Arrays.asList("7:10", "20:23", "41:44", "38:40", "45:48", "53:59", "60:62"));
+        assertEquals(expected, matches(matcher, 0, TEXT.length()));
+
+        for (int cut = 1; cut < TEXT.length(); cut++) {
+        	Set<String> pieces = matches(matcher, 0, cut);
+        	pieces.addAll(matches(matcher, cut, TEXT.length()));
+        	assertEquals(expected, pieces, "cut at " + cut);
+        }
+    }
+
+    /*
+     * Stopwords are dropped when the patterns are compiled.
+     */
+    @Test
+    void dropsStopwordsAndIgnoresCase() {
+        TokenMatcher ignoringCase = new TokenMatcher(PATTERNS, true);
+        assertEquals(3, ignoringCase.getPatternCount());
+        assertEquals(new HashSet<String>(Arrays.asList("24:30", "53:59", "60:62", "45:48")), matches(ignoringCase, 0, TEXT.length()));
+    }
+
+    /*
+     * Two tokens can never match one token.
+     */
+    @Test
+    void rejectsPatternOfTwoTokens() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenMatcher(Collections.singleton("new york")));
+    }
+}